@@ -28,7 +28,9 @@ android {
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
 
-        buildConfigField("String", "API_KEY", "\"${apikeyProperties.getProperty("API_KEY")}\"")    }
+        buildConfigField("String", "API_KEY", "\"${apikeyProperties.getProperty("API_KEY")}\"")
+        // Optional WebSocket trade feed, e.g. wss://ws.finnhub.io?token=...; empty disables streaming
+        buildConfigField("String", "QUOTE_STREAM_URL", "\"${apikeyProperties.getProperty("QUOTE_STREAM_URL", "")}\"")    }
 
     buildFeatures {
         buildConfig = true
@@ -49,6 +51,11 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+
+    // Lets JVM tests run code that logs through android.util.Log
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -75,10 +82,7 @@ dependencies {
     implementation("com.google.firebase:firebase-messaging")
 
     // Networking
-    implementation("com.squareup.retrofit2:retrofit:2.9.0")
-    implementation("com.squareup.retrofit2:converter-gson:2.9.0")
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
-    implementation("com.squareup.okhttp3:logging-interceptor:4.12.0")
     implementation("com.google.code.gson:gson:2.10.1")
 
     // Image Loading
@@ -88,11 +92,16 @@ dependencies {
     // Charts
     implementation("com.github.PhilJay:MPAndroidChart:v3.1.0")
 
+    // Background cache prefetch
+    implementation("androidx.work:work-runtime:2.9.0")
+
     // Testing
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
     testImplementation("org.mockito:mockito-core:5.3.1")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
     androidTestImplementation("androidx.test:runner:1.5.2")
     androidTestImplementation("androidx.test:rules:1.5.0")
+    androidTestImplementation("androidx.work:work-testing:2.9.0")
 }
\ No newline at end of file
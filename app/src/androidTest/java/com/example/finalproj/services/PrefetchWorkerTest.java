@@ -0,0 +1,145 @@
+package com.example.finalproj.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.Configuration;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.TestDriver;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import com.example.finalproj.utils.MarketSession;
+import com.google.firebase.auth.FirebaseAuth;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class PrefetchWorkerTest {
+    private static final long MINUTE = 60_000L;
+
+    private Context context;
+    private WorkManager workManager;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Configuration config = new Configuration.Builder()
+                .setMinimumLoggingLevel(Log.DEBUG)
+                .setExecutor(new SynchronousExecutor())
+                .build();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context, config);
+        workManager = WorkManager.getInstance(context);
+        // Without a user a run stops right after queueing the next one
+        FirebaseAuth.getInstance().signOut();
+    }
+
+    @Test
+    public void preOpenRun_endsBeforeTheOpenWithQuotesFreshUntilIt() {
+        MarketSession session = new MarketSession();
+        // Wednesday and Thursday, regular sessions
+        long open = newYork(2024, 5, 1, 9, 30);
+        long nextOpen = newYork(2024, 5, 2, 9, 30);
+
+        long fromEvening = newYork(2024, 4, 30, 20, 0);
+        long runAt = fromEvening + PrefetchWorker.getPreOpenRunDelay(session, fromEvening);
+
+        assertEquals(open - PrefetchWorker.PRE_OPEN_LEAD, runAt);
+        assertFalse(session.isOpen(runAt));
+        // Fresh for anyone opening the app before the bell, stale (so revalidated) after it
+        assertTrue(session.isFresh(runAt, MINUTE, open - 1));
+        assertFalse(session.isFresh(runAt, MINUTE, open));
+        // From the run itself, or anywhere inside the lead: the next session's
+        assertEquals(nextOpen - PrefetchWorker.PRE_OPEN_LEAD,
+                runAt + PrefetchWorker.getPreOpenRunDelay(session, runAt));
+        long insideLead = open - MINUTE;
+        assertEquals(nextOpen - PrefetchWorker.PRE_OPEN_LEAD,
+                insideLead + PrefetchWorker.getPreOpenRunDelay(session, insideLead));
+    }
+
+    @Test
+    public void openingRun_startsAfterTheOpen() {
+        MarketSession session = new MarketSession();
+        long open = newYork(2024, 5, 1, 9, 30);
+        long nextOpen = newYork(2024, 5, 2, 9, 30);
+
+        long fromPreMarket = newYork(2024, 5, 1, 9, 0);
+        long runAt = fromPreMarket + PrefetchWorker.getOpeningRunDelay(session, fromPreMarket);
+
+        assertEquals(open + PrefetchWorker.OPENING_DELAY, runAt);
+        assertTrue(session.isOpen(runAt));
+        // Scheduled between the open and the run: still today's run
+        long justAfterOpen = open + MINUTE;
+        assertEquals(open + PrefetchWorker.OPENING_DELAY,
+                justAfterOpen + PrefetchWorker.getOpeningRunDelay(session, justAfterOpen));
+        // From the run itself: the next session's
+        assertEquals(nextOpen + PrefetchWorker.OPENING_DELAY,
+                runAt + PrefetchWorker.getOpeningRunDelay(session, runAt));
+    }
+
+    @Test
+    public void schedule_keepsOneRunOfEachKind() throws Exception {
+        PrefetchWorker.schedule(context);
+        UUID preOpen = single(PrefetchWorker.PRE_OPEN_WORK).getId();
+        UUID opening = single(PrefetchWorker.OPENING_WORK).getId();
+
+        PrefetchWorker.schedule(context);
+
+        WorkInfo preOpenInfo = single(PrefetchWorker.PRE_OPEN_WORK);
+        assertEquals(preOpen, preOpenInfo.getId());
+        assertEquals(WorkInfo.State.ENQUEUED, preOpenInfo.getState());
+        assertTrue(preOpenInfo.getTags().contains(PrefetchWorker.PRE_OPEN_WORK));
+        WorkInfo openingInfo = single(PrefetchWorker.OPENING_WORK);
+        assertEquals(opening, openingInfo.getId());
+        assertTrue(openingInfo.getTags().contains(PrefetchWorker.OPENING_WORK));
+        assertEquals(WorkInfo.State.ENQUEUED, single(PrefetchWorker.CHARGING_WORK).getState());
+    }
+
+    @Test
+    public void preOpenRun_queuesTheNextOneBehindItself() throws Exception {
+        PrefetchWorker.schedule(context);
+        UUID first = single(PrefetchWorker.PRE_OPEN_WORK).getId();
+        UUID opening = single(PrefetchWorker.OPENING_WORK).getId();
+        TestDriver driver = WorkManagerTestInitHelper.getTestDriver(context);
+
+        driver.setAllConstraintsMet(first);
+        driver.setInitialDelayMet(first);
+
+        List<WorkInfo> infos = workManager.getWorkInfosForUniqueWork(PrefetchWorker.PRE_OPEN_WORK).get();
+        assertEquals(2, infos.size());
+        for (WorkInfo info : infos) {
+            if (info.getId().equals(first)) {
+                assertEquals(WorkInfo.State.SUCCEEDED, info.getState());
+            } else {
+                assertEquals(WorkInfo.State.ENQUEUED, info.getState());
+            }
+        }
+        // The opening run is a separate chain and is left alone
+        assertEquals(opening, single(PrefetchWorker.OPENING_WORK).getId());
+    }
+
+    private WorkInfo single(String uniqueName) throws Exception {
+        List<WorkInfo> infos = workManager.getWorkInfosForUniqueWork(uniqueName).get();
+        assertEquals(1, infos.size());
+        return infos.get(0);
+    }
+
+    private static long newYork(int year, int month, int day, int hour, int minute) {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("America/New_York"));
+        cal.clear();
+        cal.set(year, month - 1, day, hour, minute);
+        return cal.getTimeInMillis();
+    }
+}
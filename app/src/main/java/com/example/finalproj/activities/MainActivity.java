@@ -3,6 +3,7 @@ package com.example.finalproj.activities;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.StrictMode;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -16,8 +17,14 @@ import androidx.navigation.fragment.NavHostFragment;
 import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 
+import com.example.finalproj.BuildConfig;
 import com.example.finalproj.R;
+import com.example.finalproj.model.Quote;
+import com.example.finalproj.services.PrefetchWorker;
 import com.example.finalproj.utils.ApiManager;
+import com.example.finalproj.utils.QuoteChangeFilter;
+import com.example.finalproj.utils.RequestHandle;
+import com.example.finalproj.utils.RequestScope;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.firebase.auth.FirebaseAuth;
@@ -28,13 +35,12 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
-import org.json.JSONObject;
-
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.HashMap;
+import java.util.Map;
 
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MainActivity";
-    private static final long UPDATE_INTERVAL = 8 * 60 * 60 * 1000; // 8 hours in milliseconds
+    private static final long MIN_UPDATE_INTERVAL = 60 * 1000;
 
     private NavController navController;
     private MaterialToolbar toolbar;
@@ -45,13 +51,37 @@ public class MainActivity extends AppCompatActivity {
     private AppBarConfiguration appBarConfiguration;
     private Handler updateHandler = new Handler(Looper.getMainLooper());
     private Runnable updateRunnable;
+    private RequestScope requestScope;
+    private RequestHandle tickSubscription;
+
+    // Balance and holdings follow Firebase through listeners held for the session; only the
+    // quote refresh runs on the timer
+    private DatabaseReference balanceRef;
+    private ValueEventListener balanceListener;
+    private DatabaseReference portfolioRef;
+    private ValueEventListener portfolioListener;
+    private Double availableBalance;
+    private Map<String, Integer> holdings = new HashMap<>();
+    private double investedValue;
+    private final Map<String, Double> prices = new HashMap<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        if (BuildConfig.DEBUG) {
+            // Cache reads belong on ApiManager's I/O thread; log any that slip onto this one
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .build());
+        }
+        ApiManager.preloadCache(this);
         setContentView(R.layout.activity_main);
 
         mAuth = FirebaseAuth.getInstance();
+        requestScope = RequestScope.bind(this);
+        PrefetchWorker.schedule(this);
 
         toolbar = findViewById(R.id.topAppBar);
         bottomNav = findViewById(R.id.bottom_navigation);
@@ -77,7 +107,7 @@ public class MainActivity extends AppCompatActivity {
             } else {
                 showNavigationElements();
                 if (isUserLoggedIn()) {
-                    updateBalanceAndTotal();
+                    attachAccountListeners();
                 }
             }
         });
@@ -93,9 +123,11 @@ public class MainActivity extends AppCompatActivity {
             public void run() {
                 if (isUserLoggedIn()) {
                     Log.d(TAG, "Performing periodic update");
-                    updateBalanceAndTotal();
+                    refreshPrices();
                 }
-                updateHandler.postDelayed(this, UPDATE_INTERVAL);
+                // Every quote TTL while the market is open, otherwise not until the next open
+                updateHandler.postDelayed(this,
+                        Math.max(MIN_UPDATE_INTERVAL, ApiManager.getQuoteRefreshDelay()));
             }
         };
         updateHandler.post(updateRunnable);
@@ -107,8 +139,10 @@ public class MainActivity extends AppCompatActivity {
         balanceMenuItem = menu.findItem(R.id.menu_balance);
         totalValueMenuItem = menu.findItem(R.id.menu_total_value);
         if (isUserLoggedIn()) {
-            updateBalanceAndTotal();
+            attachAccountListeners();
         }
+        showBalance();
+        showTotalValue();
         return true;
     }
 
@@ -121,91 +155,33 @@ public class MainActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
-    private void updateBalanceAndTotal() {
-        if (balanceMenuItem != null && totalValueMenuItem != null && isUserLoggedIn()) {
-            String userId = mAuth.getCurrentUser().getUid();
-            DatabaseReference userRef = FirebaseDatabase.getInstance().getReference()
-                    .child("users").child(userId);
-
-            userRef.child("balance").addValueEventListener(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    if (snapshot.exists()) {
-                        double balance = snapshot.getValue(Double.class);
-                        String formattedBalance = String.format("Available: $%.2f", balance);
-                        balanceMenuItem.setTitle(formattedBalance);
-                        calculateTotalValue(balance);
-                    }
-                }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    Log.e(TAG, "Failed to read balance", error.toException());
-                }
-            });
-        }
-    }
+    private void attachAccountListeners() {
+        if (balanceListener != null) return;
 
-    private void calculateTotalValue(double availableBalance) {
         String userId = mAuth.getCurrentUser().getUid();
-        DatabaseReference portfolioRef = FirebaseDatabase.getInstance().getReference()
-                .child("portfolios").child(userId);
-
-        portfolioRef.addValueEventListener(new ValueEventListener() {
+        DatabaseReference root = FirebaseDatabase.getInstance().getReference();
+        balanceRef = root.child("users").child(userId).child("balance");
+        balanceListener = balanceRef.addValueEventListener(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                final double[] investedValue = {0};
-                final double[] currentValue = {0};
-                final AtomicInteger totalStocks = new AtomicInteger(0);
-                final AtomicInteger pendingRequests = new AtomicInteger(0);
-
-                for (DataSnapshot stockSnapshot : snapshot.getChildren()) {
-                    Integer quantity = stockSnapshot.child("quantity").getValue(Integer.class);
-                    Double purchasePrice = stockSnapshot.child("lastPrice").getValue(Double.class);
-                    String symbol = stockSnapshot.child("symbol").getValue(String.class);
-
-                    if (quantity != null && quantity > 0 && purchasePrice != null && symbol != null) {
-                        investedValue[0] += (purchasePrice * quantity);
-                        totalStocks.incrementAndGet();
-                        pendingRequests.incrementAndGet();
-
-                        ApiManager.getStockQuotes(MainActivity.this, symbol, new ApiManager.ApiCallback() {
-                            @Override
-                            public void onSuccess(JSONObject response) {
-                                try {
-                                    JSONObject quote = response.getJSONObject("Global Quote");
-                                    double currentPrice = Double.parseDouble(quote.getString("05. price"));
-                                    currentValue[0] += (currentPrice * quantity);
-                                } catch (Exception e) {
-                                    Log.e(TAG, "Error parsing stock price", e);
-                                }
-
-                                if (pendingRequests.decrementAndGet() == 0) {
-                                    // All requests completed
-                                    double totalValue = availableBalance + currentValue[0];
-                                    String formattedTotal = String.format("Total: $%.2f", totalValue);
-                                    runOnUiThread(() -> totalValueMenuItem.setTitle(formattedTotal));
-                                }
-                            }
-
-                            @Override
-                            public void onFailure(String errorMessage) {
-                                Log.e(TAG, "Failed to get stock price: " + errorMessage);
-                                if (pendingRequests.decrementAndGet() == 0) {
-                                    // Use invested value if current value cannot be fetched
-                                    double totalValue = availableBalance + investedValue[0];
-                                    String formattedTotal = String.format("Total: $%.2f", totalValue);
-                                    runOnUiThread(() -> totalValueMenuItem.setTitle(formattedTotal));
-                                }
-                            }
-                        });
-                    }
+                if (snapshot.exists()) {
+                    availableBalance = snapshot.getValue(Double.class);
+                    showBalance();
+                    showTotalValue();
                 }
+            }
 
-                if (totalStocks.get() == 0) {
-                    String formattedTotal = String.format("Total: $%.2f", availableBalance);
-                    totalValueMenuItem.setTitle(formattedTotal);
-                }
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Failed to read balance", error.toException());
+            }
+        });
+
+        portfolioRef = root.child("portfolios").child(userId);
+        portfolioListener = portfolioRef.addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                onPortfolioChanged(snapshot);
             }
 
             @Override
@@ -215,6 +191,116 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    private void detachAccountListeners() {
+        if (balanceListener != null) {
+            balanceRef.removeEventListener(balanceListener);
+            balanceListener = null;
+        }
+        if (portfolioListener != null) {
+            portfolioRef.removeEventListener(portfolioListener);
+            portfolioListener = null;
+        }
+        if (tickSubscription != null) {
+            tickSubscription.cancel();
+            tickSubscription = null;
+        }
+        availableBalance = null;
+        holdings = new HashMap<>();
+        prices.clear();
+    }
+
+    private void onPortfolioChanged(DataSnapshot snapshot) {
+        Map<String, Integer> quantities = new HashMap<>();
+        Map<String, Double> purchasePrices = new HashMap<>();
+        double invested = 0;
+
+        for (DataSnapshot stockSnapshot : snapshot.getChildren()) {
+            Integer quantity = stockSnapshot.child("quantity").getValue(Integer.class);
+            Double purchasePrice = stockSnapshot.child("lastPrice").getValue(Double.class);
+            String symbol = stockSnapshot.child("symbol").getValue(String.class);
+
+            if (quantity != null && quantity > 0 && purchasePrice != null && symbol != null) {
+                invested += (purchasePrice * quantity);
+                quantities.put(symbol, quantity);
+                purchasePrices.put(symbol, purchasePrice);
+            }
+        }
+        ApiManager.setHoldings(quantities, purchasePrices);
+        holdings = quantities;
+        investedValue = invested;
+        prices.keySet().retainAll(quantities.keySet());
+
+        if (tickSubscription != null) {
+            tickSubscription.cancel();
+            tickSubscription = null;
+        }
+        if (!holdings.isEmpty()) {
+            // Live trades move the total between refreshes. Holdings multiply every move, so
+            // only trades at an unchanged price are dropped.
+            QuoteChangeFilter priceChanges = new QuoteChangeFilter(0, 0);
+            tickSubscription = requestScope.add(ApiManager.getTickBus(this)
+                    .subscribe(holdings.keySet(), ApiManager.MAIN_THREAD, tick -> {
+                        if (priceChanges.filter(tick) == null) return;
+                        prices.put(tick.getSymbol(), tick.getPrice());
+                        showTotalValue();
+                    }));
+        }
+        refreshPrices();
+    }
+
+    // Quote polling for the total; throttled by the periodic timer and the quote cache
+    private void refreshPrices() {
+        if (holdings.isEmpty()) {
+            showTotalValue();
+            return;
+        }
+
+        Map<String, Integer> requested = holdings;
+        requestScope.add(ApiManager.getStockQuotes(this, requested.keySet(),
+                ApiManager.Priority.BACKGROUND, new ApiManager.BatchCallback() {
+            @Override
+            public void onSuccess(Map<String, Quote> quotes) {
+                if (requested != holdings) return;
+                for (Map.Entry<String, Quote> quote : quotes.entrySet()) {
+                    prices.put(quote.getKey(), quote.getValue().getPrice());
+                }
+                showTotalValue();
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                Log.e(TAG, "Failed to get stock prices: " + errorMessage);
+                if (requested != holdings || !prices.isEmpty() || totalValueMenuItem == null
+                        || availableBalance == null) return;
+                // Use invested value if current value cannot be fetched
+                double totalValue = availableBalance + investedValue;
+                String formattedTotal = String.format("Total: $%.2f", totalValue);
+                totalValueMenuItem.setTitle(formattedTotal);
+            }
+        }));
+    }
+
+    private void showBalance() {
+        if (balanceMenuItem == null || availableBalance == null) return;
+        String formattedBalance = String.format("Available: $%.2f", availableBalance);
+        balanceMenuItem.setTitle(formattedBalance);
+    }
+
+    private void showTotalValue() {
+        if (totalValueMenuItem == null || availableBalance == null) return;
+        double currentValue = 0;
+        for (Map.Entry<String, Integer> holding : holdings.entrySet()) {
+            Double price = prices.get(holding.getKey());
+            if (price == null) continue;
+
+            currentValue += (price * holding.getValue());
+        }
+
+        double totalValue = availableBalance + currentValue;
+        String formattedTotal = String.format("Total: $%.2f", totalValue);
+        totalValueMenuItem.setTitle(formattedTotal);
+    }
+
     private void hideNavigationElements() {
         toolbar.setVisibility(View.GONE);
         bottomNav.setVisibility(View.GONE);
@@ -226,17 +312,16 @@ public class MainActivity extends AppCompatActivity {
     }
 
     public void updateBalance(double newBalance) {
-        if (balanceMenuItem != null) {
-            String formattedBalance = String.format("Available: $%.2f", newBalance);
-            balanceMenuItem.setTitle(formattedBalance);
-            calculateTotalValue(newBalance);
-        }
+        availableBalance = newBalance;
+        showBalance();
+        showTotalValue();
     }
 
     private void logout() {
         if (updateHandler != null && updateRunnable != null) {
             updateHandler.removeCallbacks(updateRunnable);
         }
+        detachAccountListeners();
         mAuth.signOut();
         navController.navigate(R.id.loginFragment);
     }
@@ -257,5 +342,6 @@ public class MainActivity extends AppCompatActivity {
         if (updateHandler != null && updateRunnable != null) {
             updateHandler.removeCallbacks(updateRunnable);
         }
+        detachAccountListeners();
     }
 }
\ No newline at end of file
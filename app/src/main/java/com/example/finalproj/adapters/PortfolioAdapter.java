@@ -19,8 +19,10 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.finalproj.R;
+import com.example.finalproj.model.PriceSeries;
 import com.example.finalproj.model.Stock;
 import com.example.finalproj.utils.ApiManager;
+import com.example.finalproj.utils.RequestHandle;
 import com.example.finalproj.utils.TradeManager;
 import com.example.finalproj.utils.UserManager;
 import com.github.mikephil.charting.charts.LineChart;
@@ -35,13 +37,9 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.textfield.TextInputEditText;
 
-import org.json.JSONObject;
-
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -80,12 +78,7 @@ public class PortfolioAdapter extends RecyclerView.Adapter<PortfolioAdapter.View
         // Set stock details
         holder.stockName.setText(stock.getName());
         holder.stockSymbol.setText(stock.getSymbol());
-        holder.stockPrice.setText(String.format("Current Price: $%.2f", stock.getPrice()));
-
-        double changePercent = stock.getChangePercent();
-        holder.stockPriceChange.setText(String.format("%.2f%%", changePercent));
-        holder.stockPriceChange.setTextColor(changePercent >= 0 ?
-                context.getColor(R.color.green) : context.getColor(R.color.red));
+        bindPrice(holder, stock);
 
         holder.stockLogo.setImageResource(stock.getLogoResource());
 
@@ -116,6 +109,27 @@ public class PortfolioAdapter extends RecyclerView.Adapter<PortfolioAdapter.View
         holder.graphContainer.setVisibility(View.GONE);
         holder.priceChart.clear();
 
+    }
+
+    // Quote updates arrive with a QuoteChangeFilter.Change payload; only the price and holding
+    // views are rebound, so an open chart stays open
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        bindPrice(holder, stockList.get(position));
+    }
+
+    private void bindPrice(ViewHolder holder, Stock stock) {
+        holder.stockPrice.setText(String.format("Current Price: $%.2f", stock.getPrice()));
+
+        double changePercent = stock.getChangePercent();
+        holder.stockPriceChange.setText(String.format("%.2f%%", changePercent));
+        holder.stockPriceChange.setTextColor(changePercent >= 0 ?
+                context.getColor(R.color.green) : context.getColor(R.color.red));
+
         if (stock.getQuantity() > 0) {
             holder.holdingsContainer.setVisibility(View.VISIBLE);
             double totalValue = stock.getQuantity() * stock.getPrice();
@@ -262,51 +276,39 @@ public class PortfolioAdapter extends RecyclerView.Adapter<PortfolioAdapter.View
         holder.chartProgress.setVisibility(View.VISIBLE);
         holder.priceChart.setVisibility(View.GONE);
 
-        ApiManager.getStockTimeSeriesData(context, stock.getSymbol(), timespan,
-                new ApiManager.ApiCallback() {
+        if (holder.chartRequest != null) {
+            holder.chartRequest.cancel();
+        }
+        holder.chartRequest = ApiManager.getStockTimeSeriesData(context, stock.getSymbol(), timespan,
+                new ApiManager.SeriesCallback() {
                     @Override
-                    public void onSuccess(JSONObject response) {
+                    public void onSuccess(PriceSeries series) {
                         try {
-                            List<Entry> entries = processResponseData(response, timespan);
+                            List<Entry> entries = processResponseData(series);
                             if (entries.isEmpty()) {
-                                holder.priceChart.post(() -> showChartError(holder));
+                                showChartError(holder);
                                 return;
                             }
-                            holder.priceChart.post(() -> setupChart(holder, entries, stock.getSymbol(), timespan));
+                            setupChart(holder, entries, stock.getSymbol(), timespan);
                         } catch (Exception e) {
                             Log.e(TAG, "Error processing data: " + e.getMessage());
-                            holder.priceChart.post(() -> showChartError(holder));
+                            showChartError(holder);
                         }
                     }
 
                     @Override
                     public void onFailure(String errorMessage) {
                         Log.e(TAG, "Failed to load data: " + errorMessage);
-                        holder.priceChart.post(() -> showChartError(holder));
+                        showChartError(holder);
                     }
                 });
     }
 
-    private List<Entry> processResponseData(JSONObject response, String timespan) throws Exception {
-        List<Entry> entries = new ArrayList<>();
-        String timeSeriesKey = timespan.equals("1D") ? "Time Series (5min)" : "Time Series (Daily)";
-        JSONObject timeSeries = response.getJSONObject(timeSeriesKey);
-
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
-        dateFormat.setTimeZone(TimeZone.getTimeZone("Asia/Jerusalem"));
-
-        Iterator<String> dates = timeSeries.keys();
-        while (dates.hasNext()) {
-            String dateStr = dates.next();
-            JSONObject dataPoint = timeSeries.getJSONObject(dateStr);
-            float closePrice = Float.parseFloat(dataPoint.getString("4. close"));
-            long timestamp = dateFormat.parse(dateStr).getTime();
-            entries.add(new Entry(timestamp, closePrice));
+    private List<Entry> processResponseData(PriceSeries series) {
+        List<Entry> entries = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            entries.add(new Entry(series.getTimestamp(i), series.getClose(i)));
         }
-
-        Collections.sort(entries, (e1, e2) ->
-                Float.compare(e1.getX(), e2.getX()));
-
         return entries;
     }
     private void setupChart(ViewHolder holder, List<Entry> entries, String symbol, String timespan) {
@@ -395,6 +397,15 @@ public class PortfolioAdapter extends RecyclerView.Adapter<PortfolioAdapter.View
         holder.priceChart.invalidate();
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (holder.chartRequest != null) {
+            holder.chartRequest.cancel();
+            holder.chartRequest = null;
+        }
+    }
+
     @Override
     public int getItemCount() {
         return stockList.size();
@@ -408,6 +419,7 @@ public class PortfolioAdapter extends RecyclerView.Adapter<PortfolioAdapter.View
         LineChart priceChart;
         MaterialButton btn1D, btn1W, btn1M, btn3M, btn1Y;
         ProgressBar chartProgress;
+        RequestHandle chartRequest;
         TextView holdingsQuantity, holdingsValue, profitLoss;
         View holdingsContainer;
 
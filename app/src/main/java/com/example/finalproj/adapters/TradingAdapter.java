@@ -59,16 +59,8 @@ public class TradingAdapter extends RecyclerView.Adapter<TradingAdapter.ViewHold
         holder.stockLogo.setImageResource(stock.getLogoResource());
 
         holder.buyPrice.setText(String.format("Buy: $%.2f", stock.getPreviousClose()));
-        holder.sellPrice.setText(String.format("Sell: $%.2f", stock.getPrice()));
-
-        double profitLoss = (stock.getPrice() - stock.getPreviousClose()) * stock.getQuantity();
-        holder.profitLoss.setText(String.format("$%.2f", profitLoss));
-        holder.profitLoss.setTextColor(context.getColor(profitLoss >= 0 ? R.color.green : R.color.red));
-
         holder.quantity.setText(String.format("Quantity: %d", stock.getQuantity()));
-
-        double totalValue = stock.getPrice() * stock.getQuantity();
-        holder.totalValue.setText(String.format("Total Value: $%.2f", totalValue));
+        bindPrice(holder, stock);
 
         holder.closeButton.setOnClickListener(v -> {
             if (listener != null) {
@@ -82,6 +74,28 @@ public class TradingAdapter extends RecyclerView.Adapter<TradingAdapter.ViewHold
         });
     }
 
+    // Quote updates arrive with a QuoteChangeFilter.Change payload; only the price views are rebound
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        bindPrice(holder, stockList.get(position));
+    }
+
+    private void bindPrice(ViewHolder holder, Stock stock) {
+        Context context = holder.itemView.getContext();
+        holder.sellPrice.setText(String.format("Sell: $%.2f", stock.getPrice()));
+
+        double profitLoss = (stock.getPrice() - stock.getPreviousClose()) * stock.getQuantity();
+        holder.profitLoss.setText(String.format("$%.2f", profitLoss));
+        holder.profitLoss.setTextColor(context.getColor(profitLoss >= 0 ? R.color.green : R.color.red));
+
+        double totalValue = stock.getPrice() * stock.getQuantity();
+        holder.totalValue.setText(String.format("Total Value: $%.2f", totalValue));
+    }
+
     private void showSellPartDialog(Context context, Stock stock) {
         View dialogView = LayoutInflater.from(context)
                 .inflate(R.layout.dialog_trade_stock, null);
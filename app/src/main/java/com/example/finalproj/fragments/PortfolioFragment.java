@@ -18,15 +18,20 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.example.finalproj.R;
 import com.example.finalproj.activities.MainActivity;
 import com.example.finalproj.adapters.PortfolioAdapter;
+import com.example.finalproj.model.Quote;
 import com.example.finalproj.model.Stock;
 import com.example.finalproj.utils.ApiManager;
+import com.example.finalproj.utils.FrameBatchExecutor;
+import com.example.finalproj.utils.QuoteChangeFilter;
+import com.example.finalproj.utils.RequestScope;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 
-import org.json.JSONObject;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class PortfolioFragment extends Fragment {
@@ -42,6 +47,9 @@ public class PortfolioFragment extends Fragment {
     private AtomicInteger pendingRequests;
     private int failedRequests = 0;
     private volatile boolean isLoadingData = false;
+    private RequestScope requestScope;
+    private FrameBatchExecutor tickDelivery;
+    private final QuoteChangeFilter quoteChanges = QuoteChangeFilter.forDisplay();
 
     private final String[] STOCK_SYMBOLS = {
             "AAPL", "GOOGL", "MSFT", "AMZN", "TSLA",
@@ -55,10 +63,17 @@ public class PortfolioFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_portfolio, container, false);
         initializeViews(view);
         setupRecyclerView();
-        loadStockData();
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        requestScope = RequestScope.bind(getViewLifecycleOwner());
+        loadStockData();
+        subscribeToTicks();
+    }
+
     private void initializeViews(View view) {
         recyclerView = view.findViewById(R.id.rvPortfolio);
         progressBar = view.findViewById(R.id.progressBar);
@@ -122,63 +137,97 @@ public class PortfolioFragment extends Fragment {
         isLoadingData = true;
         showLoading();
         stockList.clear();
+        quoteChanges.clear();
         adapter.notifyDataSetChanged();
         failedRequests = 0;
 
-        pendingRequests = new AtomicInteger(STOCK_SYMBOLS.length);
+        pendingRequests = new AtomicInteger(1);
 
-        for (String symbol : STOCK_SYMBOLS) {
-            if (!isAdded()) {
-                isLoadingData = false;
-                return;
-            }
+        // Renders straight from the cache; stale quotes are refreshed behind it and patched in
+        // place. Callbacks arrive on the main thread.
+        requestScope.add(ApiManager.getStockQuotes(requireContext(), Arrays.asList(STOCK_SYMBOLS),
+                ApiManager.Priority.VISIBLE, ApiManager.CachePolicy.STALE_WHILE_REVALIDATE,
+                new ApiManager.BatchCallback() {
+                    @Override
+                    public void onSuccess(Map<String, Quote> quotes) {
+                        if (!isAdded()) return;
+
+                        List<Stock> loadedStocks = new ArrayList<>();
+                        int failed = 0;
+                        for (String symbol : STOCK_SYMBOLS) {
+                            Quote quote = quotes.get(symbol);
+                            if (quote == null) {
+                                failed++;
+                                continue;
+                            }
+
+                            loadedStocks.add(toStock(symbol, quote));
+                            quoteChanges.filter(symbol, quote);
+                        }
 
-            ApiManager.getStockQuotes(requireContext(), symbol, new ApiManager.ApiCallback() {
-                @Override
-                public void onSuccess(JSONObject response) {
-                    if (!isAdded()) return;
-
-                    try {
-                        JSONObject globalQuote = response.getJSONObject("Global Quote");
-                        Stock stock = new Stock(
-                                symbol,
-                                getCompanyName(symbol),
-                                Double.parseDouble(globalQuote.getString("05. price")),
-                                0,
-                                globalQuote.getString("07. latest trading day"),
-                                Double.parseDouble(globalQuote.getString("08. previous close"))
-                        );
-
-                        requireActivity().runOnUiThread(() -> {
-                            if (!isAdded()) return;
-                            stockList.add(stock);
-                            adapter.notifyDataSetChanged();
-                            updateTotalValue();
-                            checkLoadingComplete(false);
-                        });
-
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error processing data for " + symbol, e);
-                        requireActivity().runOnUiThread(() -> {
-                            if (!isAdded()) return;
-                            failedRequests++;
-                            checkLoadingComplete(true);
-                        });
+                        stockList.addAll(loadedStocks);
+                        adapter.notifyDataSetChanged();
+                        updateTotalValue();
+                        failedRequests += failed;
+                        checkLoadingComplete(failed > 0);
                     }
-                }
 
-                @Override
-                public void onFailure(String errorMessage) {
-                    if (!isAdded()) return;
+                    @Override
+                    public void onUpdated(Map<String, Quote> quotes) {
+                        if (!isAdded()) return;
+
+                        for (int i = 0; i < stockList.size(); i++) {
+                            String symbol = stockList.get(i).getSymbol();
+                            Quote quote = quotes.get(symbol);
+                            QuoteChangeFilter.Change change = quote != null ? quoteChanges.filter(symbol, quote) : null;
+                            if (change != null) {
+                                stockList.set(i, toStock(symbol, quote));
+                                adapter.notifyItemChanged(i, change);
+                            }
+                        }
+                        updateTotalValue();
+                    }
 
-                    Log.e(TAG, "Failed to load " + symbol + ": " + errorMessage);
-                    requireActivity().runOnUiThread(() -> {
-                        failedRequests++;
+                    @Override
+                    public void onFailure(String errorMessage) {
+                        if (!isAdded()) return;
+
+                        Log.e(TAG, "Failed to load stocks: " + errorMessage);
+                        failedRequests += STOCK_SYMBOLS.length;
                         checkLoadingComplete(true);
-                    });
-                }
-            });
-        }
+                    }
+                }));
+    }
+
+    // Live trades update the loaded rows in place, delivered once per frame. Only rows whose
+    // price visibly moved are rebound.
+    private void subscribeToTicks() {
+        tickDelivery = new FrameBatchExecutor();
+        requestScope.add(ApiManager.getTickBus(requireContext()).subscribe(Arrays.asList(STOCK_SYMBOLS),
+                tickDelivery, tick -> {
+                    for (int i = 0; i < stockList.size(); i++) {
+                        Stock stock = stockList.get(i);
+                        if (stock.getSymbol().equals(tick.getSymbol())) {
+                            QuoteChangeFilter.Change change = quoteChanges.filter(tick);
+                            if (change != null) {
+                                stock.setPrice(tick.getPrice());
+                                adapter.notifyItemChanged(i, change);
+                            }
+                            break;
+                        }
+                    }
+                }));
+    }
+
+    private Stock toStock(String symbol, Quote quote) {
+        return new Stock(
+                symbol,
+                getCompanyName(symbol),
+                quote.getPrice(),
+                0,
+                quote.getLatestTradingDay(),
+                quote.getPreviousClose()
+        );
     }
 
     private void checkLoadingComplete(boolean failed) {
@@ -19,8 +19,12 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.example.finalproj.R;
 import com.example.finalproj.activities.MainActivity;
 import com.example.finalproj.adapters.TradingAdapter;
+import com.example.finalproj.model.Quote;
 import com.example.finalproj.model.Stock;
 import com.example.finalproj.utils.ApiManager;
+import com.example.finalproj.utils.FrameBatchExecutor;
+import com.example.finalproj.utils.QuoteChangeFilter;
+import com.example.finalproj.utils.RequestScope;
 import com.example.finalproj.utils.TradeManager;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.firebase.auth.FirebaseAuth;
@@ -30,8 +34,6 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
-import org.json.JSONObject;
-
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -54,16 +56,31 @@ public class TradingFragment extends Fragment {
     private FirebaseAuth mAuth;
     private DatabaseReference portfolioRef;
     private ValueEventListener portfolioListener;
+    private RequestScope requestScope;
+    private FrameBatchExecutor quoteDelivery;
+    private final QuoteChangeFilter quoteChanges = QuoteChangeFilter.forDisplay();
+    private boolean rowsChanged = false;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_trading, container, false);
         initializeViews(view);
         setupRecyclerView();
-        loadPortfolioData();
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        requestScope = RequestScope.bind(getViewLifecycleOwner());
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        loadPortfolioData();
+    }
+
     private void initializeViews(View view) {
         rvTrading = view.findViewById(R.id.rvTrading);
         progressBar = view.findViewById(R.id.progressBar);
@@ -93,6 +110,17 @@ public class TradingFragment extends Fragment {
                 executeSellOrder(stock, quantity, value);
             }
         });
+        // New rows and the P/L total refresh once per frame; price moves on existing rows are
+        // notified per row as they pass the change filter
+        quoteDelivery = new FrameBatchExecutor(() -> {
+            if (isAdded()) {
+                if (rowsChanged) {
+                    rowsChanged = false;
+                    adapter.notifyDataSetChanged();
+                }
+                updateTotalProfitLoss();
+            }
+        });
         rvTrading.setLayoutManager(new LinearLayoutManager(getContext()));
         rvTrading.setAdapter(adapter);
     }
@@ -111,6 +139,8 @@ public class TradingFragment extends Fragment {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
                 stockList.clear();
+                quoteChanges.clear();
+                requestScope.cancelAll();
 
                 if (!snapshot.exists()) {
                     updateUI(0, 0);
@@ -149,45 +179,65 @@ public class TradingFragment extends Fragment {
                         final int finalQuantity = quantity;
                         final double finalPurchasePrice = purchasePrice;
 
-                        ApiManager.getStockQuotes(requireContext(), symbol, new ApiManager.ApiCallback() {
+                        requestScope.add(ApiManager.getStockQuotes(requireContext(), symbol, ApiManager.Priority.VISIBLE,
+                                ApiManager.CachePolicy.STALE_WHILE_REVALIDATE, quoteDelivery,
+                                new ApiManager.QuoteCallback() {
                             @Override
-                            public void onSuccess(JSONObject response) {
-                                try {
-                                    JSONObject quote = response.getJSONObject("Global Quote");
-                                    double currentPrice = Double.parseDouble(quote.getString("05. price"));
+                            public void onSuccess(Quote quote) {
+                                if (!isAdded()) return;
 
+                                try {
                                     Stock stock = new Stock(
                                             finalSymbol,
                                             finalName,
-                                            currentPrice,
+                                            quote.getPrice(),
                                             finalQuantity,
-                                            quote.getString("07. latest trading day"),
+                                            quote.getLatestTradingDay(),
                                             finalPurchasePrice
                                     );
 
-                                    requireActivity().runOnUiThread(() -> {
-                                        stockList.add(stock);
-                                        adapter.notifyDataSetChanged();
-                                        updateTotalProfitLoss();
-
-                                        if (loadedStocks.incrementAndGet() == totalStocks.get()) {
-                                            updateUI(totalStocks.get(), totalInvestmentArray[0]);
-                                            hideLoading();
-                                        }
-                                    });
-
+                                    stockList.add(stock);
+                                    quoteChanges.filter(finalSymbol, quote);
+                                    rowsChanged = true;
+                                    if (loadedStocks.incrementAndGet() == totalStocks.get()) {
+                                        updateUI(totalStocks.get(), totalInvestmentArray[0]);
+                                        hideLoading();
+                                    }
                                 } catch (Exception e) {
                                     Log.e(TAG, "Error processing data: " + e.getMessage());
                                     handleError(totalStocks.get(), totalInvestmentArray[0]);
                                 }
                             }
 
+                            @Override
+                            public void onUpdated(Quote quote) {
+                                if (!isAdded()) return;
+
+                                QuoteChangeFilter.Change change = quoteChanges.filter(finalSymbol, quote);
+                                if (change == null) return;
+                                Stock stock = new Stock(
+                                        finalSymbol,
+                                        finalName,
+                                        quote.getPrice(),
+                                        finalQuantity,
+                                        quote.getLatestTradingDay(),
+                                        finalPurchasePrice
+                                );
+                                for (int i = 0; i < stockList.size(); i++) {
+                                    if (stockList.get(i).getSymbol().equals(finalSymbol)) {
+                                        stockList.set(i, stock);
+                                        adapter.notifyItemChanged(i, change);
+                                        break;
+                                    }
+                                }
+                            }
+
                             @Override
                             public void onFailure(String errorMessage) {
                                 Log.e(TAG, "API error: " + errorMessage);
                                 handleError(totalStocks.get(), totalInvestmentArray[0]);
                             }
-                        });
+                        }));
                     }
                 }
             }
@@ -259,15 +309,14 @@ public class TradingFragment extends Fragment {
         totalProfitLoss.setTextColor(requireContext().getColor(total >= 0 ? R.color.green : R.color.red));
     }
 
+    // Runs on the main thread with the quote callbacks
     private void handleError(int openPositions, double totalInvestment) {
         if (isAdded()) {
-            requireActivity().runOnUiThread(() -> {
-                updateUI(openPositions, totalInvestment);
-                hideLoading();
-                if (stockList.isEmpty()) {
-                    showError("Error loading data");
-                }
-            });
+            updateUI(openPositions, totalInvestment);
+            hideLoading();
+            if (stockList.isEmpty()) {
+                showError("Error loading data");
+            }
         }
     }
 
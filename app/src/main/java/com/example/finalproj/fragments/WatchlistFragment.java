@@ -26,8 +26,12 @@ import com.example.finalproj.R;
 import com.example.finalproj.activities.MainActivity;
 import com.example.finalproj.adapters.WatchlistAdapter;
 import com.example.finalproj.model.NotificationItem;
+import com.example.finalproj.model.Quote;
 import com.example.finalproj.model.Stock;
 import com.example.finalproj.utils.ApiManager;
+import com.example.finalproj.utils.FrameBatchExecutor;
+import com.example.finalproj.utils.QuoteChangeFilter;
+import com.example.finalproj.utils.RequestScope;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
@@ -35,9 +39,8 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
-import org.json.JSONObject;
-
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -55,12 +58,17 @@ public class WatchlistFragment extends Fragment implements WatchlistAdapter.Watc
     private Map<String, Stock> stockCache;
     private ValueEventListener watchlistListener;
     private boolean isFragmentActive = false;
+    private RequestScope requestScope;
+    private FrameBatchExecutor quoteDelivery;
+    private QuoteChangeFilter quoteChanges;
+    private boolean rowsChanged = false;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         watchlist = new ArrayList<>();
         stockCache = new HashMap<>();
+        quoteChanges = QuoteChangeFilter.forDisplay();
     }
 
     @Override
@@ -71,6 +79,12 @@ public class WatchlistFragment extends Fragment implements WatchlistAdapter.Watc
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        requestScope = RequestScope.bind(getViewLifecycleOwner());
+    }
+
     @Override
     public void onAttach(@NonNull Context context) {
         super.onAttach(context);
@@ -103,6 +117,14 @@ public class WatchlistFragment extends Fragment implements WatchlistAdapter.Watc
 
     private void setupRecyclerView() {
         adapter = new WatchlistAdapter(requireContext(), watchlist, this);
+        // Rows added by quote callbacks are announced once per frame; price moves on existing
+        // rows are notified per row as they pass the change filter
+        quoteDelivery = new FrameBatchExecutor(() -> {
+            if (isFragmentActive && rowsChanged) {
+                rowsChanged = false;
+                adapter.notifyDataSetChanged();
+            }
+        });
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         recyclerView.setAdapter(adapter);
     }
@@ -125,8 +147,11 @@ public class WatchlistFragment extends Fragment implements WatchlistAdapter.Watc
 
                 watchlist.clear();
                 stockCache.clear();
+                quoteChanges.clear();
+                requestScope.cancelAll();
 
                 if (!snapshot.exists()) {
+                    ApiManager.setWatchedSymbols(Collections.emptyList());
                     hideLoading();
                     showError("No stocks in watchlist");
                     return;
@@ -134,10 +159,12 @@ public class WatchlistFragment extends Fragment implements WatchlistAdapter.Watc
 
                 int totalStocks = (int) snapshot.getChildrenCount();
                 final int[] loadedStocks = {0};
+                List<String> symbols = new ArrayList<>();
 
                 for (DataSnapshot stockSnapshot : snapshot.getChildren()) {
                     String symbol = stockSnapshot.getKey();
                     if (symbol != null) {
+                        symbols.add(symbol);
                         fetchStockData(symbol, () -> {
                             if (!isFragmentActive) return;
 
@@ -151,6 +178,22 @@ public class WatchlistFragment extends Fragment implements WatchlistAdapter.Watc
                         });
                     }
                 }
+
+                ApiManager.setWatchedSymbols(symbols);
+
+                // Live trades move the rows between quote refreshes, batched per frame like quotes
+                requestScope.add(ApiManager.getTickBus(requireContext()).subscribe(symbols, quoteDelivery,
+                        tick -> {
+                            if (!isFragmentActive) return;
+
+                            Stock stock = stockCache.get(tick.getSymbol());
+                            if (stock == null) return;
+                            QuoteChangeFilter.Change change = quoteChanges.filter(tick);
+                            if (change != null) {
+                                stock.setPrice(tick.getPrice());
+                                notifyRowChanged(change);
+                            }
+                        }));
             }
 
             @Override
@@ -171,56 +214,76 @@ public class WatchlistFragment extends Fragment implements WatchlistAdapter.Watc
             return;
         }
 
-        ApiManager.getStockQuotes(requireContext(), symbol, new ApiManager.ApiCallback() {
+        requestScope.add(ApiManager.getStockQuotes(requireContext(), symbol, ApiManager.Priority.VISIBLE,
+                ApiManager.CachePolicy.STALE_WHILE_REVALIDATE, quoteDelivery, new ApiManager.QuoteCallback() {
             @Override
-            public void onSuccess(JSONObject response) {
+            public void onSuccess(Quote quote) {
                 try {
-                    JSONObject quote = response.getJSONObject("Global Quote");
-                    Stock stock = new Stock(
-                            symbol,
-                            getCompanyName(symbol),
-                            Double.parseDouble(quote.getString("05. price")),
-                            0,
-                            quote.getString("07. latest trading day"),
-                            Double.parseDouble(quote.getString("08. previous close"))
-                    );
-
-                    if (isFragmentActive && getActivity() != null) {
-                        getActivity().runOnUiThread(() -> {
-                            if (!isFragmentActive) return;
-                            stockCache.put(symbol, stock);
-                            watchlist.add(stock);
-                            adapter.notifyDataSetChanged();
-                            onComplete.run();
-                        });
-                    } else {
-                        onComplete.run();
+                    if (isFragmentActive) {
+                        Stock stock = toStock(symbol, quote);
+                        stockCache.put(symbol, stock);
+                        watchlist.add(stock);
+                        quoteChanges.filter(symbol, quote);
+                        rowsChanged = true;
                     }
-
+                    onComplete.run();
                 } catch (Exception e) {
                     Log.e(TAG, "Error processing data for " + symbol, e);
                     handleError("Error processing data", onComplete);
                 }
             }
 
+            @Override
+            public void onUpdated(Quote quote) {
+                if (!isFragmentActive) return;
+
+                QuoteChangeFilter.Change change = quoteChanges.filter(symbol, quote);
+                if (change == null) return;
+                for (int i = 0; i < watchlist.size(); i++) {
+                    if (watchlist.get(i).getSymbol().equals(symbol)) {
+                        Stock stock = toStock(symbol, quote);
+                        watchlist.set(i, stock);
+                        stockCache.put(symbol, stock);
+                        adapter.notifyItemChanged(i, change);
+                        break;
+                    }
+                }
+            }
+
             @Override
             public void onFailure(String errorMessage) {
                 Log.e(TAG, "API error for " + symbol + ": " + errorMessage);
                 handleError("Failed to load stock data", onComplete);
             }
-        });
+        }));
     }
 
+    private void notifyRowChanged(QuoteChangeFilter.Change change) {
+        for (int i = 0; i < watchlist.size(); i++) {
+            if (watchlist.get(i).getSymbol().equals(change.symbol)) {
+                adapter.notifyItemChanged(i, change);
+                return;
+            }
+        }
+    }
+
+    private Stock toStock(String symbol, Quote quote) {
+        return new Stock(
+                symbol,
+                getCompanyName(symbol),
+                quote.getPrice(),
+                0,
+                quote.getLatestTradingDay(),
+                quote.getPreviousClose()
+        );
+    }
+
+    // Runs on the main thread with the quote callbacks
     private void handleError(String message, Runnable onComplete) {
-        if (isFragmentActive && getActivity() != null) {
-            getActivity().runOnUiThread(() -> {
-                if (!isFragmentActive) return;
-                showError(message);
-                onComplete.run();
-            });
-        } else {
-            onComplete.run();
+        if (isFragmentActive) {
+            showError(message);
         }
+        onComplete.run();
     }
 
     @Override
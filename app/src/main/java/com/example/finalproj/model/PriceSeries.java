@@ -0,0 +1,60 @@
+package com.example.finalproj.model;
+
+import java.util.Arrays;
+
+// Close prices of one chart, oldest first. Timestamps are epoch milliseconds. The arrays are
+// owned by the series and never exposed, so a series can be cached and shared between threads.
+public final class PriceSeries {
+    private final long[] timestamps;
+    private final float[] closes;
+
+    public PriceSeries(long[] timestamps, float[] closes, int size) {
+        this.timestamps = Arrays.copyOf(timestamps, size);
+        this.closes = Arrays.copyOf(closes, size);
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public boolean isEmpty() {
+        return timestamps.length == 0;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public float getClose(int index) {
+        return closes[index];
+    }
+
+    // The candles with startTime <= timestamp <= endTime; this series itself when that is all of them
+    public PriceSeries slice(long startTime, long endTime) {
+        int from = lowerBound(startTime);
+        int to = endTime == Long.MAX_VALUE ? timestamps.length : lowerBound(endTime + 1);
+        if (from == 0 && to == timestamps.length) {
+            return this;
+        }
+        if (from >= to) {
+            return new PriceSeries(new long[0], new float[0], 0);
+        }
+        return new PriceSeries(Arrays.copyOfRange(timestamps, from, to), Arrays.copyOfRange(closes, from, to),
+                to - from);
+    }
+
+    // Index of the first timestamp >= time
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = timestamps.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
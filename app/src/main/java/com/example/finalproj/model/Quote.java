@@ -0,0 +1,43 @@
+package com.example.finalproj.model;
+
+// Parsed quote as returned by ApiManager. Instances are immutable so the same object can be
+// cached and handed to any number of callers on any thread.
+public final class Quote {
+    private final String symbol;
+    private final double price;
+    private final double previousClose;
+    private final String latestTradingDay;
+    private final long fetchedAt;
+
+    public Quote(String symbol, double price, double previousClose,
+                 String latestTradingDay, long fetchedAt) {
+        this.symbol = symbol;
+        this.price = price;
+        this.previousClose = previousClose;
+        this.latestTradingDay = latestTradingDay;
+        this.fetchedAt = fetchedAt;
+    }
+
+    public String getSymbol() { return symbol; }
+    public double getPrice() { return price; }
+    public double getPreviousClose() { return previousClose; }
+    public String getLatestTradingDay() { return latestTradingDay; }
+    public long getFetchedAt() { return fetchedAt; }
+
+    public double getChange() {
+        return price - previousClose;
+    }
+
+    public double getChangePercent() {
+        return previousClose != 0 ? (price - previousClose) / previousClose * 100 : 0;
+    }
+
+    // Same market data, regardless of when either quote was fetched
+    public boolean hasSameValues(Quote other) {
+        return other != null
+                && symbol.equals(other.symbol)
+                && price == other.price
+                && previousClose == other.previousClose
+                && latestTradingDay.equals(other.latestTradingDay);
+    }
+}
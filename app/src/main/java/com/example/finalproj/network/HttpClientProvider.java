@@ -0,0 +1,62 @@
+package com.example.finalproj.network;
+
+import android.content.Context;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+// The one OkHttpClient the app talks to the network through. Sharing it means a single
+// connection pool, so each host pays for its TLS handshake once, and a single disk cache.
+// Responses with an ETag or Last-Modified are made cacheable by RevalidatingCacheInterceptor,
+// so repeat requests go out with If-None-Match / If-Modified-Since and may come back as a 304.
+public class HttpClientProvider {
+    private static final String CACHE_DIR = "http_cache";
+    private static final long CACHE_SIZE = 10L * 1024 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+
+    // Yahoo hands out the session cookie on fc.yahoo.com and the crumb for it on getcrumb
+    private static final HttpUrl YAHOO_COOKIE_URL = HttpUrl.get("https://fc.yahoo.com/");
+    private static final HttpUrl YAHOO_CRUMB_URL = HttpUrl.get("https://query1.finance.yahoo.com/v1/test/getcrumb");
+
+    private static OkHttpClient client;
+    private static OkHttpClient yahooQuoteClient;
+
+    private HttpClientProvider() {
+    }
+
+    public static synchronized OkHttpClient get(Context context) {
+        if (client == null) {
+            File cacheDir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+            client = new OkHttpClient.Builder()
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                    .cache(new Cache(cacheDir, CACHE_SIZE))
+                    .addNetworkInterceptor(new RevalidatingCacheInterceptor())
+                    .build();
+            client.dispatcher().setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        }
+        return client;
+    }
+
+    // For Yahoo's v7 quote endpoint, which needs a session cookie and crumb on every request
+    public static synchronized OkHttpClient getYahooQuoteClient(Context context) {
+        if (yahooQuoteClient == null) {
+            OkHttpClient base = get(context);
+            CookieJar cookieJar = new YahooCrumbInterceptor.SessionCookieJar();
+            yahooQuoteClient = base.newBuilder()
+                    .cookieJar(cookieJar)
+                    .addInterceptor(new YahooCrumbInterceptor(base, cookieJar, YAHOO_COOKIE_URL, YAHOO_CRUMB_URL))
+                    .build();
+        }
+        return yahooQuoteClient;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.finalproj.network;
+
+import com.example.finalproj.model.Tick;
+import com.example.finalproj.utils.MarketDataParser;
+import com.example.finalproj.utils.TickBus;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+// WebSocket trade feed. The socket is opened when the first symbol is subscribed and closed
+// when the last one goes away; in between, dropped connections are retried with exponential
+// backoff and jitter, and every current subscription is replayed once the socket is back.
+// Speaks the {"type":"subscribe","symbol":...} / {"type":"trade","data":[...]} protocol.
+public class QuoteStream extends WebSocketListener implements TickBus.Upstream {
+    private static final int NORMAL_CLOSURE = 1000;
+
+    public interface Listener {
+        // Called on the socket's reader thread
+        void onTicks(List<Tick> ticks);
+        void onConnectionChanged(boolean connected, int failedAttempts);
+    }
+
+    private final OkHttpClient client;
+    private final String url;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Listener listener;
+    private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private final Random random = new Random();
+    private final AtomicLong receivedTicks = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    // Guarded by this
+    private WebSocket webSocket;
+    private boolean connected = false;
+    private int failedAttempts = 0;
+    private ScheduledFuture<?> pendingReconnect;
+
+    public QuoteStream(OkHttpClient client, String url, long minBackoffMillis, long maxBackoffMillis,
+                       Listener listener) {
+        this.client = client;
+        this.url = url;
+        this.minBackoffMillis = minBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.listener = listener;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "QuoteStream");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public synchronized void subscribe(String symbol) {
+        if (!symbols.add(symbol)) return;
+        if (connected) {
+            webSocket.send(message("subscribe", symbol));
+        } else if (webSocket == null && pendingReconnect == null) {
+            connect();
+        }
+    }
+
+    @Override
+    public synchronized void unsubscribe(String symbol) {
+        if (!symbols.remove(symbol)) return;
+        if (connected) {
+            webSocket.send(message("unsubscribe", symbol));
+        }
+        if (symbols.isEmpty()) {
+            disconnect();
+        }
+    }
+
+    public synchronized boolean isConnected() {
+        return connected;
+    }
+
+    public long getReceivedTickCount() {
+        return receivedTicks.get();
+    }
+
+    public long getReconnectCount() {
+        return reconnects.get();
+    }
+
+    public synchronized void shutdown() {
+        symbols.clear();
+        disconnect();
+        scheduler.shutdownNow();
+    }
+
+    // Must hold the lock
+    private void connect() {
+        webSocket = client.newWebSocket(new Request.Builder().url(url).build(), this);
+    }
+
+    // Must hold the lock
+    private void disconnect() {
+        if (pendingReconnect != null) {
+            pendingReconnect.cancel(false);
+            pendingReconnect = null;
+        }
+        if (webSocket != null) {
+            webSocket.close(NORMAL_CLOSURE, null);
+            webSocket = null;
+        }
+        connected = false;
+        failedAttempts = 0;
+    }
+
+    @Override
+    public void onOpen(WebSocket socket, Response response) {
+        synchronized (this) {
+            if (socket != webSocket) return;
+            connected = true;
+            failedAttempts = 0;
+            for (String symbol : symbols) {
+                socket.send(message("subscribe", symbol));
+            }
+        }
+        listener.onConnectionChanged(true, 0);
+    }
+
+    @Override
+    public void onMessage(WebSocket socket, String text) {
+        List<Tick> ticks;
+        try {
+            ticks = MarketDataParser.readTrades(new StringReader(text));
+        } catch (IOException | IllegalStateException e) {
+            // Not a message we understand; the feed keeps going
+            return;
+        }
+        if (!ticks.isEmpty()) {
+            receivedTicks.addAndGet(ticks.size());
+            listener.onTicks(ticks);
+        }
+    }
+
+    @Override
+    public void onClosing(WebSocket socket, int code, String reason) {
+        socket.close(NORMAL_CLOSURE, null);
+    }
+
+    @Override
+    public void onClosed(WebSocket socket, int code, String reason) {
+        onDisconnected(socket);
+    }
+
+    @Override
+    public void onFailure(WebSocket socket, Throwable t, Response response) {
+        onDisconnected(socket);
+    }
+
+    private void onDisconnected(WebSocket socket) {
+        int attempts;
+        synchronized (this) {
+            // Sockets we closed ourselves, or already replaced, are not retried
+            if (socket != webSocket) return;
+            webSocket = null;
+            connected = false;
+            if (symbols.isEmpty()) return;
+            scheduleReconnect();
+            attempts = failedAttempts;
+        }
+        listener.onConnectionChanged(false, attempts);
+    }
+
+    // Must hold the lock. Waits min * 2^attempts (capped), randomised to 50-100% of that so a
+    // server restart is not met by every client at the same instant.
+    private void scheduleReconnect() {
+        long backoff = Math.min(maxBackoffMillis, minBackoffMillis << Math.min(failedAttempts, 20));
+        long delay = backoff / 2 + (long) (random.nextDouble() * (backoff / 2));
+        failedAttempts++;
+        pendingReconnect = scheduler.schedule(() -> {
+            synchronized (QuoteStream.this) {
+                pendingReconnect = null;
+                if (webSocket == null && !symbols.isEmpty()) {
+                    reconnects.incrementAndGet();
+                    connect();
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static String message(String type, String symbol) {
+        StringWriter out = new StringWriter();
+        try {
+            new JsonWriter(out).beginObject()
+                    .name("type").value(type)
+                    .name("symbol").value(symbol)
+                    .endObject()
+                    .flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.finalproj.network;
+
+import java.io.IOException;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+// Quote and chart responses are often marked no-cache, no-store or max-age=0, which keeps
+// them out of the disk cache even when they carry an ETag or Last-Modified. This network
+// interceptor rewrites such GET responses to "no-cache": OkHttp then stores them and sends
+// If-None-Match / If-Modified-Since on every later request, and an unchanged resource comes
+// back as a bodiless 304. Responses the server already allows caching for are left alone.
+public class RevalidatingCacheInterceptor implements Interceptor {
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        if (!chain.request().method().equals("GET") || response.code() != 200 || !hasValidator(response)) {
+            return response;
+        }
+
+        CacheControl cacheControl = response.cacheControl();
+        if (!cacheControl.noStore() && !cacheControl.noCache() && cacheControl.maxAgeSeconds() > 0) {
+            return response;
+        }
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "no-cache")
+                .build();
+    }
+
+    private static boolean hasValidator(Response response) {
+        return response.header("ETag") != null || response.header("Last-Modified") != null;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.finalproj.network;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+// Yahoo's v7 quote endpoint answers 401 unless the request carries a session cookie and the
+// matching "crumb" query parameter. The cookie comes from any response of cookieUrl, the crumb
+// from crumbUrl once the cookie is set. Both are fetched on first use, on the OkHttp thread the
+// quote request already runs on, and again once if Yahoo rejects the crumb; a second 401 is
+// returned to the caller so the quote router can fail over.
+public class YahooCrumbInterceptor implements Interceptor {
+    static final String USER_AGENT = "Mozilla/5.0";
+
+    private final HttpUrl cookieUrl;
+    private final HttpUrl crumbUrl;
+    private final OkHttpClient handshakeClient;
+    private String crumb;
+
+    // baseClient is shared with the app; the handshake goes through a copy that stores cookies in
+    // the jar the quote client must also use
+    public YahooCrumbInterceptor(OkHttpClient baseClient, CookieJar cookieJar, HttpUrl cookieUrl, HttpUrl crumbUrl) {
+        this.cookieUrl = cookieUrl;
+        this.crumbUrl = crumbUrl;
+        this.handshakeClient = baseClient.newBuilder().cookieJar(cookieJar).build();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String usedCrumb = getCrumb();
+        Response response = chain.proceed(withCrumb(request, usedCrumb));
+        if (response.code() != 401) {
+            return response;
+        }
+
+        response.close();
+        invalidate(usedCrumb);
+        return chain.proceed(withCrumb(request, getCrumb()));
+    }
+
+    private static Request withCrumb(Request request, String crumb) {
+        HttpUrl url = request.url().newBuilder().setQueryParameter("crumb", crumb).build();
+        return request.newBuilder().url(url).build();
+    }
+
+    private synchronized String getCrumb() throws IOException {
+        if (crumb == null) {
+            crumb = fetchCrumb();
+        }
+        return crumb;
+    }
+
+    // Only drops the crumb if no other request has replaced it in the meantime
+    private synchronized void invalidate(String rejected) {
+        if (rejected.equals(crumb)) {
+            crumb = null;
+        }
+    }
+
+    private String fetchCrumb() throws IOException {
+        // The cookie page answers 404, but with the Set-Cookie we need
+        handshakeClient.newCall(new Request.Builder().url(cookieUrl).header("User-Agent", USER_AGENT).build())
+                .execute().close();
+
+        try (Response response = handshakeClient.newCall(
+                new Request.Builder().url(crumbUrl).header("User-Agent", USER_AGENT).build()).execute()) {
+            ResponseBody body = response.body();
+            String value = body != null ? body.string().trim() : "";
+            if (!response.isSuccessful() || value.isEmpty() || value.contains("<") || value.contains(" ")) {
+                throw new IOException("Yahoo crumb request failed: HTTP " + response.code());
+            }
+            return value;
+        }
+    }
+
+    // Keeps cookies in memory for the life of the process, which is as long as a crumb is used
+    public static class SessionCookieJar implements CookieJar {
+        private final Map<String, Cookie> cookies = new HashMap<>();
+
+        @Override
+        public synchronized void saveFromResponse(HttpUrl url, List<Cookie> responseCookies) {
+            for (Cookie cookie : responseCookies) {
+                cookies.put(cookie.domain() + cookie.path() + cookie.name(), cookie);
+            }
+        }
+
+        @Override
+        public synchronized List<Cookie> loadForRequest(HttpUrl url) {
+            List<Cookie> matching = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            for (Cookie cookie : cookies.values()) {
+                if (cookie.expiresAt() > now && cookie.matches(url)) {
+                    matching.add(cookie);
+                }
+            }
+            return matching;
+        }
+    }
+}
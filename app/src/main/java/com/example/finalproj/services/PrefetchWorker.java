@@ -0,0 +1,237 @@
+package com.example.finalproj.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.finalproj.model.PriceSeries;
+import com.example.finalproj.model.Quote;
+import com.example.finalproj.utils.ApiManager;
+import com.example.finalproj.utils.MarketSession;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+// Warms the quote and chart caches for the signed-in user's holdings and watchlist, so the
+// first Portfolio or Watchlist screen of the day renders from the store instead of starting a
+// cold fan-out. Runs half an hour before each market open on any network, when most users open
+// the app ahead of the US session, and opportunistically while charging on an unmetered network.
+// Those quotes stay fresh until the open (MarketSession.getExpiresAt); after it the
+// STALE_WHILE_REVALIDATE screens still render them at once and refresh them in the background.
+// A second, quotes-only run a few minutes after the open replaces them with session prices.
+// Quotes go through the BACKGROUND queue, so the Alpha Vantage quota is spent by the
+// QuotaPlanner as for any other background refresh.
+public class PrefetchWorker extends Worker {
+    private static final String TAG = "PrefetchWorker";
+    static final String PRE_OPEN_WORK = "prefetch_pre_open";
+    static final String OPENING_WORK = "prefetch_opening";
+    static final String CHARGING_WORK = "prefetch_charging";
+    static final long PRE_OPEN_LEAD = TimeUnit.MINUTES.toMillis(30);
+    // Long enough for the first trades to print
+    static final long OPENING_DELAY = TimeUnit.MINUTES.toMillis(5);
+    private static final long CHARGING_PERIOD_HOURS = 6;
+    private static final long FIREBASE_TIMEOUT_SECONDS = 30;
+    private static final long FETCH_TIMEOUT_SECONDS = 90;
+    // The chart rows open with, and how many of them to fetch per run
+    private static final String PREFETCH_TIMESPAN = "1D";
+    private static final int MAX_PREFETCH_CHARTS = 25;
+    private static final Executor DIRECT = Runnable::run;
+    private static final MarketSession MARKET_SESSION = new MarketSession();
+
+    public PrefetchWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    // Safe to call on every launch: existing schedules are kept
+    public static void schedule(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.enqueueUniqueWork(PRE_OPEN_WORK, ExistingWorkPolicy.KEEP, nextPreOpenRequest());
+        workManager.enqueueUniqueWork(OPENING_WORK, ExistingWorkPolicy.KEEP, nextOpeningRequest());
+
+        Constraints charging = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .build();
+        workManager.enqueueUniquePeriodicWork(CHARGING_WORK, ExistingPeriodicWorkPolicy.KEEP,
+                new PeriodicWorkRequest.Builder(PrefetchWorker.class, CHARGING_PERIOD_HOURS, TimeUnit.HOURS)
+                        .setConstraints(charging)
+                        .build());
+    }
+
+    // Time from now until PRE_OPEN_LEAD before the next open that is at least that far away, so
+    // a pre-open run never queues another one for the open it just warmed
+    static long getPreOpenRunDelay(MarketSession session, long now) {
+        return session.getNextOpen(now + PRE_OPEN_LEAD) - PRE_OPEN_LEAD - now;
+    }
+
+    // Time from now until OPENING_DELAY past an open, counting today's open until that point
+    static long getOpeningRunDelay(MarketSession session, long now) {
+        return session.getNextOpen(now - OPENING_DELAY) + OPENING_DELAY - now;
+    }
+
+    private static OneTimeWorkRequest nextPreOpenRequest() {
+        return dailyRequest(PRE_OPEN_WORK, getPreOpenRunDelay(MARKET_SESSION, System.currentTimeMillis()));
+    }
+
+    private static OneTimeWorkRequest nextOpeningRequest() {
+        return dailyRequest(OPENING_WORK, getOpeningRunDelay(MARKET_SESSION, System.currentTimeMillis()));
+    }
+
+    private static OneTimeWorkRequest dailyRequest(String tag, long delay) {
+        return new OneTimeWorkRequest.Builder(PrefetchWorker.class)
+                .setInitialDelay(delay, TimeUnit.MILLISECONDS)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .addTag(tag)
+                .build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        // Queued behind this run, so it starts counting once this one finishes
+        boolean openingRun = getTags().contains(OPENING_WORK);
+        if (getTags().contains(PRE_OPEN_WORK)) {
+            WorkManager.getInstance(getApplicationContext())
+                    .enqueueUniqueWork(PRE_OPEN_WORK, ExistingWorkPolicy.APPEND_OR_REPLACE, nextPreOpenRequest());
+        } else if (openingRun) {
+            WorkManager.getInstance(getApplicationContext())
+                    .enqueueUniqueWork(OPENING_WORK, ExistingWorkPolicy.APPEND_OR_REPLACE, nextOpeningRequest());
+        }
+
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            return Result.success();
+        }
+
+        Set<String> symbols = new LinkedHashSet<>();
+        try {
+            symbols.addAll(loadHoldings(user.getUid()));
+            symbols.addAll(loadWatchlist(user.getUid()));
+        } catch (Exception e) {
+            Log.w(TAG, "Could not load symbols to prefetch: " + e.getMessage());
+            return Result.retry();
+        }
+        if (symbols.isEmpty()) {
+            return Result.success();
+        }
+
+        Context context = getApplicationContext();
+        boolean quotesLoaded = prefetchQuotes(context, symbols);
+        // Charts were stored by the pre-open run; a few minutes in, only quotes are worth refetching
+        int charts = openingRun ? 0 : prefetchCharts(context, symbols);
+        Log.d(TAG, "Prefetched " + symbols.size() + " quotes" + (quotesLoaded ? "" : " (incomplete)")
+                + " and " + charts + " charts");
+        return Result.success();
+    }
+
+    // Held symbols from portfolios/<uid>, also handed to ApiManager for pinning and quota planning
+    private List<String> loadHoldings(String uid) throws Exception {
+        DataSnapshot snapshot = Tasks.await(FirebaseDatabase.getInstance().getReference()
+                .child("portfolios").child(uid).get(), FIREBASE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Map<String, Integer> quantities = new HashMap<>();
+        Map<String, Double> purchasePrices = new HashMap<>();
+        for (DataSnapshot stockSnapshot : snapshot.getChildren()) {
+            Integer quantity = stockSnapshot.child("quantity").getValue(Integer.class);
+            Double purchasePrice = stockSnapshot.child("lastPrice").getValue(Double.class);
+            String symbol = stockSnapshot.child("symbol").getValue(String.class);
+            if (quantity != null && quantity > 0 && purchasePrice != null && symbol != null) {
+                quantities.put(symbol, quantity);
+                purchasePrices.put(symbol, purchasePrice);
+            }
+        }
+        ApiManager.setHoldings(quantities, purchasePrices);
+        return new ArrayList<>(quantities.keySet());
+    }
+
+    // Symbols keyed under watchlists/<uid>
+    private List<String> loadWatchlist(String uid) throws Exception {
+        DataSnapshot snapshot = Tasks.await(FirebaseDatabase.getInstance().getReference()
+                .child("watchlists").child(uid).get(), FIREBASE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        List<String> symbols = new ArrayList<>();
+        for (DataSnapshot stockSnapshot : snapshot.getChildren()) {
+            if (stockSnapshot.getKey() != null) {
+                symbols.add(stockSnapshot.getKey());
+            }
+        }
+        ApiManager.setWatchedSymbols(symbols);
+        return symbols;
+    }
+
+    private boolean prefetchQuotes(Context context, Set<String> symbols) {
+        CountDownLatch done = new CountDownLatch(1);
+        ApiManager.getStockQuotes(context, symbols, ApiManager.Priority.BACKGROUND, ApiManager.CachePolicy.FRESH,
+                DIRECT, new ApiManager.BatchCallback() {
+                    @Override
+                    public void onSuccess(Map<String, Quote> quotes) {
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(String errorMessage) {
+                        Log.w(TAG, "Quote prefetch failed: " + errorMessage);
+                        done.countDown();
+                    }
+                });
+        return await(done);
+    }
+
+    // One chart at a time, so a run never holds more than one chart request in flight
+    private int prefetchCharts(Context context, Set<String> symbols) {
+        int loaded = 0;
+        for (String symbol : symbols) {
+            if (loaded >= MAX_PREFETCH_CHARTS || isStopped()) break;
+
+            CountDownLatch done = new CountDownLatch(1);
+            boolean[] success = {false};
+            ApiManager.getStockTimeSeriesData(context, symbol, PREFETCH_TIMESPAN, DIRECT,
+                    new ApiManager.SeriesCallback() {
+                        @Override
+                        public void onSuccess(PriceSeries series) {
+                            success[0] = true;
+                            done.countDown();
+                        }
+
+                        @Override
+                        public void onFailure(String errorMessage) {
+                            done.countDown();
+                        }
+                    });
+            if (!await(done)) break;
+            if (success[0]) loaded++;
+        }
+        return loaded;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.finalproj.utils;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.res.Configuration;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
@@ -11,6 +13,11 @@ import androidx.annotation.NonNull;
 
 import com.example.finalproj.BuildConfig;
 import com.example.finalproj.model.NotificationItem;
+import com.example.finalproj.model.PriceSeries;
+import com.example.finalproj.model.Quote;
+import com.example.finalproj.model.Tick;
+import com.example.finalproj.network.HttpClientProvider;
+import com.example.finalproj.network.QuoteStream;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.database.DataSnapshot;
@@ -19,20 +26,32 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Queue;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -44,33 +63,134 @@ public class ApiManager {
     private static final String TAG = "ApiManager";
     private static final String ALPHA_VANTAGE_BASE_URL = "https://www.alphavantage.co/query";
     private static final String YAHOO_BASE_URL = "https://query1.finance.yahoo.com/";
+    // Needs a session cookie and crumb, which HttpClientProvider.getYahooQuoteClient adds
+    private static final String YAHOO_QUOTE_PATH = "v7/finance/quote";
     private static final String API_KEY = BuildConfig.API_KEY;
 
     // Cache configuration
     private static final String PREFS_NAME = "StockPrefs";
-    private static final String LAST_UPDATE_KEY = "last_update";
-    private static final String LAST_GRAPH_UPDATE_KEY = "last_graph_update";
-    private static final String GRAPH_DATA_PREFIX = "graph_data";
-    private static final long CACHE_DURATION = 12 * 60 * 60 * 1000;
     private static final String TIMEZONE_ISRAEL = "Asia/Jerusalem";
 
-    private static final int MARKET_OPEN_HOUR = 16;
-    private static final int MARKET_CLOSE_HOUR = 23;
-
-    private static final long REQUEST_SPACING = 15000;
-    private static final Queue<PendingRequest> requestQueue = new LinkedList<>();
-    private static boolean isProcessingQueue = false;
+    // Cached data stays fresh for these TTLs while the market is open, and from the close
+    // until the next open once the session has settled
+    private static final long QUOTE_INTRADAY_TTL = TimeUnit.SECONDS.toMillis(60);
+    private static final long MAX_SERIES_INTRADAY_TTL = TimeUnit.HOURS.toMillis(1);
+    // Chart timespans from narrowest to widest
+    private static final String[] TIMESPANS = {"1D", "1W", "1M", "3M", "1Y"};
+    private static final MarketSession marketSession = new MarketSession();
+
+    // Alpha Vantage free tier limits; the daily quota resets at midnight US Eastern time
+    private static final int ALPHA_VANTAGE_CALLS_PER_MINUTE = 5;
+    private static final int ALPHA_VANTAGE_CALLS_PER_DAY = 25;
+    private static final String TIMEZONE_NEW_YORK = "America/New_York";
+
+    private static final SlidingWindowLimiter alphaVantageLimiter = new SlidingWindowLimiter(
+            ALPHA_VANTAGE_CALLS_PER_MINUTE,
+            TimeUnit.MINUTES.toMillis(1),
+            ALPHA_VANTAGE_CALLS_PER_DAY,
+            TimeZone.getTimeZone(TIMEZONE_NEW_YORK));
+    private static final QuotaLedger quotaLedger = new QuotaLedger(alphaVantageLimiter);
+
+    // Once no more than LOW_QUOTA_BUDGET calls are left for the day, only symbols scoring at
+    // least LOW_QUOTA_MIN_SCORE are sent: on screen, a $1,000 holding 45 minutes stale or an
+    // unheld symbol three hours stale (QuotaPlanner.score)
+    private static final int LOW_QUOTA_BUDGET = 10;
+    private static final double LOW_QUOTA_MIN_SCORE = 6;
+    private static final QuotaPlanner quotaPlanner = new QuotaPlanner(LOW_QUOTA_BUDGET, LOW_QUOTA_MIN_SCORE);
+
+    // Opened by Alpha Vantage's rate limit note; quotes come from the cache until it resets
+    private static final long RATE_LIMIT_COOLDOWN = TimeUnit.MINUTES.toMillis(1);
+    private static final CircuitBreaker rateLimitBreaker = new CircuitBreaker();
+
+    private static final RequestDispatcher<PendingRequest> quoteDispatcher =
+            new RequestDispatcher<>("ApiDispatcher", alphaVantageLimiter, new QuoteSink());
     private static final Handler handler = new Handler(Looper.getMainLooper());
 
-    private static final OkHttpClient alphaVantageClient = new OkHttpClient.Builder()
-            .connectTimeout(10, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
-
-    private static final OkHttpClient yahooClient = new OkHttpClient.Builder()
-            .connectTimeout(10, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
+    // Default callback executor: runs inline when already on the main thread, otherwise posts there
+    public static final Executor MAIN_THREAD = command -> {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            command.run();
+        } else {
+            handler.post(command);
+        }
+    };
+
+    // Quote providers, tried in order of health. A request still unanswered at the primary's
+    // HEDGE_PERCENTILE latency is also sent to the next provider.
+    private static final double HEDGE_PERCENTILE = 95;
+    private static final long MIN_HEDGE_DELAY = 300;
+    private static final long DEFAULT_HEDGE_DELAY = 2000;
+    private static final int MAX_ALPHA_VANTAGE_HEDGE_SYMBOLS = 2;
+    private static final QuoteRouter quoteRouter = new QuoteRouter(
+            quoteDispatcher,
+            HEDGE_PERCENTILE,
+            MIN_HEDGE_DELAY,
+            DEFAULT_HEDGE_DELAY,
+            Arrays.asList(new YahooQuoteProvider(), new AlphaVantageQuoteProvider()));
+
+    // Streaming trades, from the WebSocket feed configured as QUOTE_STREAM_URL in apikey.properties
+    private static final long STREAM_PING_INTERVAL = TimeUnit.SECONDS.toMillis(20);
+    private static final long STREAM_MIN_BACKOFF = TimeUnit.SECONDS.toMillis(1);
+    private static final long STREAM_MAX_BACKOFF = TimeUnit.MINUTES.toMillis(2);
+    private static TickBus tickBus;
+
+    // Batch quote configuration
+    private static final int MAX_SYMBOLS_PER_BATCH = 50;
+    private static final long BATCH_WINDOW = 100;
+    private static final Set<String> pendingBatch = new LinkedHashSet<>();
+    private static boolean isBatchScheduled = false;
+    private static Context batchContext;
+    private static Priority batchPriority = Priority.BACKGROUND;
+
+    // In-flight request tracking, keyed by symbol for quotes and symbol_timespan for charts
+    private static final SingleFlight<String, Waiter<Quote>> quoteFlights = new SingleFlight<>();
+    private static final SingleFlight<String, Waiter<PriceSeries>> seriesFlights = new SingleFlight<>();
+    private static final Map<String, Call> seriesCalls = new ConcurrentHashMap<>();
+    private static final AtomicLong cancelledBeforeSend = new AtomicLong();
+
+    // Parsed quotes and charts, loaded from the store on first use. Sizes are estimates of the
+    // objects' heap footprint: headers and fields plus string chars and array elements.
+    private static final long QUOTE_MEMORY_BYTES = 64 * 1024;
+    private static final long SERIES_MEMORY_BYTES = Math.min(8 * 1024 * 1024, Runtime.getRuntime().maxMemory() / 32);
+    private static final MemoryCache<String, Quote> quoteCache = new MemoryCache<>(QUOTE_MEMORY_BYTES,
+            (symbol, quote) -> 96 + 2L * (symbol.length() + quote.getLatestTradingDay().length()));
+    private static final MemoryCache<String, CachedSeries> seriesCache = new MemoryCache<>(SERIES_MEMORY_BYTES,
+            (key, cached) -> 96 + 2L * key.length() + 12L * cached.series.size());
+    private static boolean storeMigrated = false;
+
+    // Store reads run on one I/O thread, never the caller's. Requests the memory caches can
+    // answer by themselves stay on the caller's thread; the index of what the store holds,
+    // loaded when it opens, tells a quote that was never saved from one that was evicted from
+    // memory, so the former needs no disk read either.
+    private static volatile Thread cacheThread;
+    private static final ExecutorService cacheExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ApiManager-cache");
+        thread.setDaemon(true);
+        cacheThread = thread;
+        return thread;
+    });
+    private static final Set<String> storedQuotes = ConcurrentHashMap.newKeySet();
+    private static final Set<String> storedSeries = ConcurrentHashMap.newKeySet();
+    private static volatile boolean storeIndexLoaded = false;
+
+    // What the store keeps on disk across quotes and candles. Held and watched symbols are pinned;
+    // the budget is enforced on open and at most every STORE_TRIM_INTERVAL as charts are saved.
+    private static final long STORE_MAX_BYTES = 4 * 1024 * 1024;
+    private static final long STORE_TRIM_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+    private static volatile CacheBudget storeBudget = new CacheBudget(STORE_MAX_BYTES, CacheBudget.Policy.LRU);
+    private static volatile Set<String> heldSymbols = Collections.emptySet();
+    private static volatile Set<String> watchedSymbols = Collections.emptySet();
+    private static long lastStoreTrim = 0;
+
+    private static class CachedSeries {
+        final PriceSeries series;
+        final long fetchedAt;
+
+        CachedSeries(PriceSeries series, long fetchedAt) {
+            this.series = series;
+            this.fetchedAt = fetchedAt;
+        }
+    }
 
     private static class TimeRange {
         final long startTime;
@@ -83,107 +203,861 @@ public class ApiManager {
     }
 
     private static class PendingRequest {
-        String symbol;
-        String timespan;
-        ApiCallback callback;
-        Context context;
-        boolean isGraphRequest;
-
-        PendingRequest(String symbol, String timespan, ApiCallback callback,
-                       Context context, boolean isGraphRequest) {
+        final String symbol;
+        final QuoteCallback callback;
+        // The application context: a queued request can outlive the screen that made it
+        final Context context;
+        final Priority priority;
+        final RequestHandle handle;
+
+        PendingRequest(String symbol, QuoteCallback callback, Context context, Priority priority,
+                       RequestHandle handle) {
             this.symbol = symbol;
-            this.timespan = timespan;
             this.callback = callback;
-            this.context = context;
-            this.isGraphRequest = isGraphRequest;
+            this.context = context.getApplicationContext();
+            this.priority = priority;
+            this.handle = handle;
+        }
+    }
+
+    // A caller attached to an in-flight request. Results are dropped once its handle is cancelled.
+    private static class Waiter<T> {
+        final Consumer<T> onSuccess;
+        final Consumer<String> onFailure;
+        final RequestHandle handle;
+        final boolean finishesHandle;
+
+        Waiter(Consumer<T> onSuccess, Consumer<String> onFailure, RequestHandle handle,
+               boolean finishesHandle) {
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+            this.handle = handle;
+            this.finishesHandle = finishesHandle;
+        }
+
+        boolean isCancelled() {
+            return handle.isCancelled();
         }
+
+        void onSuccess(T result) {
+            if (!handle.isCancelled()) {
+                onSuccess.accept(result);
+            }
+            if (finishesHandle) {
+                handle.finish();
+            }
+        }
+
+        void onFailure(String errorMessage) {
+            if (!handle.isCancelled()) {
+                onFailure.accept(errorMessage);
+            }
+            if (finishesHandle) {
+                handle.finish();
+            }
+        }
+    }
+
+    // VISIBLE requests back rows currently on screen and always get rate limit tokens before
+    // BACKGROUND refreshes.
+    public enum Priority {
+        VISIBLE,
+        BACKGROUND
     }
 
-    public interface ApiCallback {
-        void onSuccess(JSONObject response);
+    public interface SeriesCallback {
+        void onSuccess(PriceSeries series);
         void onFailure(String errorMessage);
     }
 
-    public static void getStockQuotes(Context context, String symbol, ApiCallback callback) {
-        JSONObject cachedData = getSavedStockData(context, symbol);
-        if (cachedData != null && !shouldUpdateStock(context, symbol)) {
-            callback.onSuccess(cachedData);
-            return;
+    // FRESH answers from the cache only while a quote is fresh and otherwise waits for the
+    // network. STALE_WHILE_REVALIDATE answers from any cached quote right away, refreshes the
+    // stale ones in the background and reports the quotes that changed through onUpdated.
+    public enum CachePolicy {
+        FRESH,
+        STALE_WHILE_REVALIDATE
+    }
+
+    public interface QuoteCallback {
+        void onSuccess(Quote quote);
+        void onFailure(String errorMessage);
+
+        // STALE_WHILE_REVALIDATE only: the refreshed quote, if it differs from the one delivered
+        default void onUpdated(Quote quote) {
+        }
+    }
+
+    public interface BatchCallback {
+        void onSuccess(Map<String, Quote> quotes);
+        void onFailure(String errorMessage);
+
+        // STALE_WHILE_REVALIDATE only: the refreshed quotes that differ from the ones delivered
+        default void onUpdated(Map<String, Quote> quotes) {
+        }
+    }
+
+    public static RequestHandle getStockQuotes(Context context, String symbol, QuoteCallback callback) {
+        return getStockQuotes(context, symbol, Priority.VISIBLE, callback);
+    }
+
+    public static RequestHandle getStockQuotes(Context context, String symbol, Priority priority,
+                                               QuoteCallback callback) {
+        return getStockQuotes(context, symbol, priority, CachePolicy.FRESH, callback);
+    }
+
+    public static RequestHandle getStockQuotes(Context context, String symbol, Priority priority,
+                                               CachePolicy cachePolicy, QuoteCallback callback) {
+        return getStockQuotes(context, symbol, priority, cachePolicy, MAIN_THREAD, callback);
+    }
+
+    // Every callback method runs on callbackExecutor
+    public static RequestHandle getStockQuotes(Context context, String symbol, Priority priority,
+                                               CachePolicy cachePolicy, Executor callbackExecutor,
+                                               QuoteCallback callback) {
+        if (!isCacheThread() && !isQuoteInMemory(symbol)) {
+            return onCacheThread(() -> getStockQuotes(context, symbol, priority, cachePolicy,
+                    callbackExecutor, callback));
+        }
+        QuoteCallback delivery = deliverOn(callbackExecutor, callback);
+        Quote cachedQuote = getSavedQuote(context, symbol);
+        if (cachePolicy != CachePolicy.STALE_WHILE_REVALIDATE
+                || cachedQuote == null || !shouldUpdateStock(cachedQuote)) {
+            return requestQuote(context, symbol, priority, delivery);
+        }
+
+        delivery.onSuccess(cachedQuote);
+        return requestQuote(context, symbol, priority, new QuoteCallback() {
+            @Override
+            public void onSuccess(Quote quote) {
+                if (!quote.hasSameValues(cachedQuote)) {
+                    delivery.onUpdated(quote);
+                }
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                Log.w(TAG, "Revalidating " + symbol + " failed: " + errorMessage);
+            }
+        });
+    }
+
+    public static RequestHandle getStockQuotes(Context context, Collection<String> symbols,
+                                               BatchCallback callback) {
+        return getStockQuotes(context, symbols, Priority.VISIBLE, callback);
+    }
+
+    public static RequestHandle getStockQuotes(Context context, Collection<String> symbols, Priority priority,
+                                               BatchCallback callback) {
+        return getStockQuotes(context, symbols, priority, CachePolicy.FRESH, callback);
+    }
+
+    public static RequestHandle getStockQuotes(Context context, Collection<String> symbols, Priority priority,
+                                               CachePolicy cachePolicy, BatchCallback callback) {
+        return getStockQuotes(context, symbols, priority, cachePolicy, MAIN_THREAD, callback);
+    }
+
+    // Every callback method runs on callbackExecutor
+    public static RequestHandle getStockQuotes(Context context, Collection<String> symbols, Priority priority,
+                                               CachePolicy cachePolicy, Executor callbackExecutor,
+                                               BatchCallback callback) {
+        if (!isCacheThread() && !areQuotesInMemory(symbols)) {
+            List<String> snapshot = new ArrayList<>(symbols);
+            return onCacheThread(() -> getStockQuotes(context, snapshot, priority, cachePolicy,
+                    callbackExecutor, callback));
+        }
+        BatchCallback delivery = deliverOn(callbackExecutor, callback);
+        if (cachePolicy != CachePolicy.STALE_WHILE_REVALIDATE) {
+            return requestQuotes(context, symbols, priority, delivery);
+        }
+
+        Map<String, Quote> cachedQuotes = new LinkedHashMap<>();
+        Set<String> staleSymbols = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            Quote cachedQuote = getSavedQuote(context, symbol);
+            if (cachedQuote == null) {
+                // Answering early would leave this symbol out, so wait for the network instead
+                return requestQuotes(context, symbols, priority, delivery);
+            }
+            cachedQuotes.put(symbol, cachedQuote);
+            if (shouldUpdateStock(cachedQuote)) {
+                staleSymbols.add(symbol);
+            }
+        }
+        if (staleSymbols.isEmpty()) {
+            delivery.onSuccess(cachedQuotes);
+            RequestHandle handle = new RequestHandle();
+            handle.finish();
+            return handle;
+        }
+
+        delivery.onSuccess(cachedQuotes);
+        return requestQuotes(context, staleSymbols, priority, new BatchCallback() {
+            @Override
+            public void onSuccess(Map<String, Quote> quotes) {
+                Map<String, Quote> changed = new LinkedHashMap<>();
+                for (Map.Entry<String, Quote> entry : quotes.entrySet()) {
+                    if (!entry.getValue().hasSameValues(cachedQuotes.get(entry.getKey()))) {
+                        changed.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    delivery.onUpdated(changed);
+                }
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                Log.w(TAG, "Revalidating " + staleSymbols.size() + " quotes failed: " + errorMessage);
+            }
+        });
+    }
+
+    private static RequestHandle requestQuote(Context context, String symbol, Priority priority,
+                                              QuoteCallback callback) {
+        RequestHandle handle = new RequestHandle();
+        Quote cachedQuote = getSavedQuote(context, symbol);
+        if (cachedQuote != null && !shouldUpdateStock(cachedQuote)) {
+            callback.onSuccess(cachedQuote);
+            handle.finish();
+            return handle;
+        }
+
+        if (!quoteFlights.join(symbol, new Waiter<>(callback::onSuccess, callback::onFailure, handle, true))) {
+            Log.d(TAG, "Joined in-flight quote request for " + symbol
+                    + " (saved calls: " + quoteFlights.getSavedCalls() + ")");
+            return handle;
+        }
+
+        synchronized (pendingBatch) {
+            pendingBatch.add(symbol);
+            batchContext = context.getApplicationContext();
+            if (priority == Priority.VISIBLE) {
+                batchPriority = Priority.VISIBLE;
+            }
+
+            if (!isBatchScheduled) {
+                isBatchScheduled = true;
+                quoteDispatcher.schedule(ApiManager::flushPendingBatch, BATCH_WINDOW);
+            }
+        }
+        return handle;
+    }
+
+    private static RequestHandle requestQuotes(Context context, Collection<String> symbols, Priority priority,
+                                               BatchCallback callback) {
+        RequestHandle handle = new RequestHandle();
+        Map<String, Quote> quotes = new LinkedHashMap<>();
+        Set<String> staleSymbols = new LinkedHashSet<>();
+
+        for (String symbol : symbols) {
+            Quote cachedQuote = getSavedQuote(context, symbol);
+            if (cachedQuote != null && !shouldUpdateStock(cachedQuote)) {
+                quotes.put(symbol, cachedQuote);
+            } else {
+                staleSymbols.add(symbol);
+            }
+        }
+
+        if (staleSymbols.isEmpty()) {
+            callback.onSuccess(quotes);
+            handle.finish();
+            return handle;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(staleSymbols.size());
+        Set<String> leaderSymbols = new LinkedHashSet<>();
+
+        for (String symbol : staleSymbols) {
+            QuoteCallback symbolCallback = new QuoteCallback() {
+                @Override
+                public void onSuccess(Quote quote) {
+                    synchronized (quotes) {
+                        quotes.put(symbol, quote);
+                    }
+                    onSymbolDone(null);
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    onSymbolDone(errorMessage);
+                }
+
+                private void onSymbolDone(String errorMessage) {
+                    if (remaining.decrementAndGet() > 0 || handle.isCancelled()) return;
+                    if (quotes.isEmpty()) {
+                        callback.onFailure(errorMessage != null ? errorMessage : "No data available");
+                    } else {
+                        callback.onSuccess(quotes);
+                    }
+                    handle.finish();
+                }
+            };
+
+            // Symbol waiters share the batch handle but only the last one finishes it
+            if (quoteFlights.join(symbol,
+                    new Waiter<>(symbolCallback::onSuccess, symbolCallback::onFailure, handle, false))) {
+                leaderSymbols.add(symbol);
+            }
+        }
+
+        if (leaderSymbols.size() < staleSymbols.size()) {
+            Log.d(TAG, "Joined " + (staleSymbols.size() - leaderSymbols.size())
+                    + " in-flight quote requests (saved calls: " + quoteFlights.getSavedCalls() + ")");
+        }
+        if (!leaderSymbols.isEmpty()) {
+            fetchQuoteFlights(context.getApplicationContext(), leaderSymbols, priority);
+        }
+        return handle;
+    }
+
+    private static QuoteCallback deliverOn(Executor executor, QuoteCallback callback) {
+        return new QuoteCallback() {
+            @Override
+            public void onSuccess(Quote quote) {
+                executor.execute(() -> callback.onSuccess(quote));
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                executor.execute(() -> callback.onFailure(errorMessage));
+            }
+
+            @Override
+            public void onUpdated(Quote quote) {
+                executor.execute(() -> callback.onUpdated(quote));
+            }
+        };
+    }
+
+    private static BatchCallback deliverOn(Executor executor, BatchCallback callback) {
+        return new BatchCallback() {
+            @Override
+            public void onSuccess(Map<String, Quote> quotes) {
+                executor.execute(() -> callback.onSuccess(quotes));
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                executor.execute(() -> callback.onFailure(errorMessage));
+            }
+
+            @Override
+            public void onUpdated(Map<String, Quote> quotes) {
+                executor.execute(() -> callback.onUpdated(quotes));
+            }
+        };
+    }
+
+    private static SeriesCallback deliverOn(Executor executor, SeriesCallback callback) {
+        return new SeriesCallback() {
+            @Override
+            public void onSuccess(PriceSeries series) {
+                executor.execute(() -> callback.onSuccess(series));
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                executor.execute(() -> callback.onFailure(errorMessage));
+            }
+        };
+    }
+
+    // Live trades for whoever subscribes. Without a configured feed the bus never publishes and
+    // screens keep relying on getStockQuotes.
+    public static synchronized TickBus getTickBus(Context context) {
+        if (tickBus != null) {
+            return tickBus;
+        }
+
+        String url = BuildConfig.QUOTE_STREAM_URL;
+        if (url == null || url.isEmpty()) {
+            Log.i(TAG, "No quote stream configured, live ticks disabled");
+            tickBus = new TickBus(new TickBus.Upstream() {
+                @Override
+                public void subscribe(String symbol) {
+                }
+
+                @Override
+                public void unsubscribe(String symbol) {
+                }
+            });
+            return tickBus;
+        }
+
+        OkHttpClient streamClient = HttpClientProvider.get(context).newBuilder()
+                .pingInterval(STREAM_PING_INTERVAL, TimeUnit.MILLISECONDS)
+                .build();
+        QuoteStream stream = new QuoteStream(streamClient, url, STREAM_MIN_BACKOFF, STREAM_MAX_BACKOFF,
+                new QuoteStream.Listener() {
+                    @Override
+                    public void onTicks(List<Tick> ticks) {
+                        for (Tick tick : ticks) {
+                            tickBus.publish(tick);
+                        }
+                    }
+
+                    @Override
+                    public void onConnectionChanged(boolean connected, int failedAttempts) {
+                        if (connected) {
+                            Log.d(TAG, "Quote stream connected");
+                        } else {
+                            Log.w(TAG, "Quote stream dropped, reconnect attempt " + failedAttempts);
+                        }
+                    }
+                });
+        tickBus = new TickBus(stream);
+        return tickBus;
+    }
+
+    public static long getCoalescedQuoteCalls() {
+        return quoteFlights.getSavedCalls();
+    }
+
+    public static long getCoalescedTimeSeriesCalls() {
+        return seriesFlights.getSavedCalls();
+    }
+
+    public static long getCancelledRequestCount() {
+        return cancelledBeforeSend.get();
+    }
+
+    public static int getQueueDepth() {
+        return quoteDispatcher.size();
+    }
+
+    private static boolean abandonQuoteFlight(String symbol) {
+        if (quoteFlights.abandon(symbol, Waiter::isCancelled)) {
+            cancelledBeforeSend.incrementAndGet();
+            Log.d(TAG, "Dropped cancelled quote request for " + symbol);
+            return true;
+        }
+        return false;
+    }
+
+    private static void abandonSeriesFlight(String flightKey) {
+        if (seriesFlights.abandon(flightKey, Waiter::isCancelled)) {
+            Call call = seriesCalls.remove(flightKey);
+            if (call != null) {
+                call.cancel();
+                cancelledBeforeSend.incrementAndGet();
+                Log.d(TAG, "Cancelled time series request for " + flightKey);
+            }
         }
+    }
+
+    private static void flushPendingBatch() {
+        Set<String> symbols;
+        Context context;
+        Priority priority;
+        synchronized (pendingBatch) {
+            symbols = new LinkedHashSet<>(pendingBatch);
+            context = batchContext;
+            priority = batchPriority;
+            pendingBatch.clear();
+            batchContext = null;
+            batchPriority = Priority.BACKGROUND;
+            isBatchScheduled = false;
+        }
+
+        symbols.removeIf(ApiManager::abandonQuoteFlight);
+        if (symbols.isEmpty()) return;
+
+        fetchQuoteFlights(context, symbols, priority);
+    }
+
+    // Fetches the symbols whose flights this caller leads and fans each result out to every
+    // callback that joined the flight meanwhile.
+    private static void fetchQuoteFlights(Context context, Set<String> symbols, Priority priority) {
+        quoteRouter.fetch(context, symbols, priority, new BatchCallback() {
+            @Override
+            public void onSuccess(Map<String, Quote> quotes) {
+                for (String symbol : symbols) {
+                    Quote quote = quotes.get(symbol);
+                    if (quote != null) {
+                        saveQuote(context, quote);
+                        checkPriceAlert(context, quote);
+                        for (Waiter<Quote> callback : quoteFlights.complete(symbol)) {
+                            callback.onSuccess(quote);
+                        }
+                    } else {
+                        completeQuoteFlightFromCache(context, symbol, "No data for " + symbol);
+                    }
+                }
+            }
 
-        requestQueue.add(new PendingRequest(symbol, null, callback, context, false));
-        processQueue();
+            @Override
+            public void onFailure(String errorMessage) {
+                for (String symbol : symbols) {
+                    completeQuoteFlightFromCache(context, symbol, errorMessage);
+                }
+            }
+        });
     }
 
-    public static void getStockTimeSeriesData(Context context, String symbol,
-                                              String timespan, ApiCallback callback) {
-        JSONObject cachedData = getSavedTimeSeriesData(context, symbol, timespan);
-        if (cachedData != null && !shouldUpdateTimeSeriesData(context, symbol, timespan)) {
-            callback.onSuccess(cachedData);
+    // Falls back to the last real quote we stored. Prices are never made up, so without one
+    // the callers get the error.
+    private static void completeQuoteFlightFromCache(Context context, String symbol, String errorMessage) {
+        if (!isCacheThread() && !isQuoteInMemory(symbol)) {
+            cacheExecutor.execute(() -> completeQuoteFlightFromCache(context, symbol, errorMessage));
             return;
         }
+        Quote cachedQuote = getSavedQuote(context, symbol);
+        for (Waiter<Quote> callback : quoteFlights.complete(symbol)) {
+            if (cachedQuote != null) {
+                callback.onSuccess(cachedQuote);
+            } else {
+                callback.onFailure(errorMessage);
+            }
+        }
+    }
+
+    public static void setHedgePercentile(double percentile) {
+        quoteRouter.setHedgePercentile(percentile);
+    }
+
+    public static long getHedgedRequestCount() {
+        return quoteRouter.getHedgedRequestCount();
+    }
+
+    public static Map<String, ProviderHealth> getProviderHealth() {
+        return quoteRouter.getProviderHealth();
+    }
+
+    // Shares and purchase price per held symbol. The planner values each position at its cached
+    // quote to spend the Alpha Vantage quota on the biggest positions.
+    public static void setHoldings(Map<String, Integer> quantities, Map<String, Double> purchasePrices) {
+        quotaPlanner.setHoldings(quantities, purchasePrices);
+        heldSymbols = new HashSet<>(quantities.keySet());
+    }
+
+    // The user's watchlist, whose cached quotes and charts are kept when the store is trimmed
+    public static void setWatchedSymbols(Collection<String> symbols) {
+        watchedSymbols = new HashSet<>(symbols);
+    }
+
+    public static List<QuotaPlanner.Decision> getQuotaDecisions() {
+        return quotaPlanner.getRecentDecisions();
+    }
+
+    public static Map<String, Integer> getQuotaSpentToday() {
+        return quotaLedger.getSpentToday(System.currentTimeMillis());
+    }
+
+    // Yahoo's multi-symbol endpoint: cheap, unmetered and answers up to 50 symbols per call
+    private static class YahooQuoteProvider implements QuoteProvider {
+        @Override
+        public String getName() {
+            return "Yahoo";
+        }
+
+        @Override
+        public boolean canAccept(int symbolCount) {
+            return true;
+        }
+
+        @Override
+        public boolean canHedge(int symbolCount) {
+            return true;
+        }
+
+        @Override
+        public RequestHandle fetch(Context context, List<String> symbols, Priority priority,
+                                   BatchCallback callback) {
+            RequestHandle handle = new RequestHandle();
+            Map<String, Quote> quotes = new HashMap<>();
+            AtomicInteger pendingChunks = new AtomicInteger(
+                    (symbols.size() + MAX_SYMBOLS_PER_BATCH - 1) / MAX_SYMBOLS_PER_BATCH);
+            String[] lastError = {null};
+
+            for (int start = 0; start < symbols.size(); start += MAX_SYMBOLS_PER_BATCH) {
+                List<String> chunk = symbols.subList(start,
+                        Math.min(start + MAX_SYMBOLS_PER_BATCH, symbols.size()));
+
+                Call call = executeBatchQuoteRequest(context, chunk, new BatchCallback() {
+                    @Override
+                    public void onSuccess(Map<String, Quote> chunkQuotes) {
+                        synchronized (quotes) {
+                            quotes.putAll(chunkQuotes);
+                        }
+                        onChunkDone();
+                    }
+
+                    @Override
+                    public void onFailure(String errorMessage) {
+                        Log.w(TAG, "Batch quote request failed: " + errorMessage);
+                        lastError[0] = errorMessage;
+                        onChunkDone();
+                    }
+
+                    private void onChunkDone() {
+                        if (pendingChunks.decrementAndGet() > 0 || handle.isCancelled()) return;
+                        if (quotes.isEmpty()) {
+                            callback.onFailure(lastError[0] != null ? lastError[0] : "No data available");
+                        } else {
+                            callback.onSuccess(quotes);
+                        }
+                        handle.finish();
+                    }
+                });
+                handle.addOnCancelListener(call::cancel);
+            }
+            return handle;
+        }
+    }
+
+    private static Call executeBatchQuoteRequest(Context context, List<String> symbols,
+                                                 BatchCallback callback) {
+        String url = String.format("%s%s?symbols=%s",
+                YAHOO_BASE_URL, YAHOO_QUOTE_PATH, String.join(",", symbols));
+
+        Request request = new Request.Builder()
+                .url(url)
+                .header("User-Agent", "Mozilla/5.0")
+                .build();
+        Log.d(TAG, "Yahoo batch quote URL: " + url);
+
+        Call batchCall = HttpClientProvider.getYahooQuoteClient(context).newCall(request);
+        batchCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (call.isCanceled()) return;
+                callback.onFailure("Network error: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                try {
+                    if (!response.isSuccessful()) {
+                        throw new Exception("HTTP " + response.code());
+                    }
+
+                    callback.onSuccess(MarketDataParser.readYahooQuotes(
+                            response.body().charStream(), newTradingDayFormat(), System.currentTimeMillis()));
+                } catch (Exception e) {
+                    Log.e(TAG, "Error processing Yahoo batch quote response", e);
+                    callback.onFailure("Error processing data: " + e.getMessage());
+                } finally {
+                    response.close();
+                }
+            }
+        });
+        return batchCall;
+    }
+
+    private static SimpleDateFormat newTradingDayFormat() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE_ISRAEL));
+        return dateFormat;
+    }
+
+    public static RequestHandle getStockTimeSeriesData(Context context, String symbol,
+                                                       String timespan, SeriesCallback callback) {
+        return getStockTimeSeriesData(context, symbol, timespan, MAIN_THREAD, callback);
+    }
+
+    // Every callback method runs on callbackExecutor. Timespans charted at the same interval
+    // share one series: the widest is fetched and cached, and narrower ones are sliced from it.
+    public static RequestHandle getStockTimeSeriesData(Context context, String symbol, String requestedTimespan,
+                                                       Executor callbackExecutor, SeriesCallback callback) {
+        String timespan = getTierTimespan(requestedTimespan);
+        if (!isCacheThread() && !isFreshSeriesInMemory(symbol, timespan)) {
+            return onCacheThread(() -> getStockTimeSeriesData(context, symbol, requestedTimespan,
+                    callbackExecutor, callback));
+        }
+        SeriesCallback delivery = deliverOn(callbackExecutor, callback);
+        if (!timespan.equals(requestedTimespan)) {
+            delivery = sliceTo(requestedTimespan, delivery);
+        }
+        RequestHandle handle = new RequestHandle();
+        PriceSeries cachedSeries = getSavedTimeSeriesData(context, symbol, timespan);
+        if (cachedSeries != null && !shouldUpdateTimeSeriesData(context, symbol, timespan)) {
+            delivery.onSuccess(cachedSeries);
+            handle.finish();
+            return handle;
+        }
+
+        String flightKey = symbol + "_" + timespan;
+        boolean isLeader = seriesFlights.join(flightKey,
+                new Waiter<>(delivery::onSuccess, delivery::onFailure, handle, true));
+        handle.addOnCancelListener(() -> abandonSeriesFlight(flightKey));
+        if (!isLeader) {
+            Log.d(TAG, "Joined in-flight time series request for " + flightKey
+                    + " (saved calls: " + seriesFlights.getSavedCalls() + ")");
+            return handle;
+        }
+
+        SeriesCallback flightCallback = new SeriesCallback() {
+            @Override
+            public void onSuccess(PriceSeries series) {
+                seriesCalls.remove(flightKey);
+                for (Waiter<PriceSeries> waiter : seriesFlights.complete(flightKey)) {
+                    waiter.onSuccess(series);
+                }
+            }
 
-        TimeRange timeRange = calculateTimeRange(timespan);
+            @Override
+            public void onFailure(String errorMessage) {
+                seriesCalls.remove(flightKey);
+                for (Waiter<PriceSeries> waiter : seriesFlights.complete(flightKey)) {
+                    waiter.onFailure(errorMessage);
+                }
+            }
+        };
+
+        // Aligning the range to whole intervals keeps the URL stable between re-opens, so the
+        // HTTP cache can answer or revalidate it instead of downloading the chart again
+        TimeRange timeRange = alignToInterval(calculateTimeRange(timespan), getIntervalMillis(timespan));
         String interval = getInterval(timespan);
+        long appendFrom = getAppendStart(context, symbol, timespan, interval, timeRange);
+        long fetchFrom = appendFrom >= 0 ? appendFrom : timeRange.startTime;
 
         String url = String.format(Locale.US,
                 "%sv8/finance/chart/%s?interval=%s&period1=%d&period2=%d",
                 YAHOO_BASE_URL,
                 symbol,
                 interval,
-                timeRange.startTime / 1000,
+                fetchFrom / 1000,
                 timeRange.endTime / 1000);
 
         Request request = new Request.Builder().url(url).build();
         Log.d(TAG, "Yahoo Finance URL: " + url);
 
-        yahooClient.newCall(request).enqueue(new Callback() {
+        Call seriesCall = HttpClientProvider.get(context).newCall(request);
+        seriesCalls.put(flightKey, seriesCall);
+        if (handle.isCancelled()) {
+            abandonSeriesFlight(flightKey);
+            return handle;
+        }
+
+        seriesCall.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
+                if (call.isCanceled()) return;
                 Log.e(TAG, "Yahoo API call failed", e);
-                handleTimeSeriesFailure(new PendingRequest(symbol, timespan, callback, context, true), e);
+                handleTimeSeriesFailure(context, symbol, timespan, flightCallback, e);
             }
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
                 try {
-                    String jsonData = response.body().string();
-                    JSONObject yahooResponse = new JSONObject(jsonData);
-                    JSONObject convertedData = processYahooResponse(yahooResponse, timespan, timeRange);
+                    if (!response.isSuccessful()) {
+                        throw new IOException("HTTP " + response.code());
+                    }
+                    if (response.cacheResponse() != null) {
+                        Log.d(TAG, (response.networkResponse() != null ? "Revalidated " : "HTTP cache hit for ")
+                                + flightKey);
+                    }
+
+                    PriceSeries fetched = MarketDataParser.readYahooChart(response.body().charStream(),
+                            fetchFrom, timeRange.endTime);
+                    PriceSeries series;
+                    if (appendFrom >= 0) {
+                        series = appendCandles(context, symbol, interval, timeRange.startTime, appendFrom, fetched);
+                        Log.d(TAG, "Appended " + fetched.size() + " candles to " + flightKey
+                                + " (" + series.size() + " in window)");
+                    } else if (fetched.isEmpty()) {
+                        throw new IOException("No quote data");
+                    } else {
+                        series = fetched;
+                    }
 
-                    saveTimeSeriesData(context, symbol, timespan, convertedData);
-                    handler.post(() -> callback.onSuccess(convertedData));
+                    saveTimeSeriesData(context, symbol, timespan, timeRange, series);
+                    flightCallback.onSuccess(series);
                 } catch (Exception e) {
                     Log.e(TAG, "Error processing Yahoo response", e);
-                    handleTimeSeriesError(new PendingRequest(symbol, timespan, callback, context, true), e);
+                    handleTimeSeriesError(context, symbol, timespan, flightCallback, e);
                 } finally {
                     response.close();
                 }
             }
         });
+        return handle;
+    }
+
+    // The widest timespan charted at the same interval, whose series covers this one
+    private static String getTierTimespan(String timespan) {
+        String interval = getInterval(timespan);
+        String tier = timespan;
+        for (String candidate : TIMESPANS) {
+            if (getInterval(candidate).equals(interval)) {
+                tier = candidate;
+            }
+        }
+        return tier;
+    }
+
+    // Cuts a tier's series down to the window of the timespan that was asked for
+    private static SeriesCallback sliceTo(String timespan, SeriesCallback callback) {
+        return new SeriesCallback() {
+            @Override
+            public void onSuccess(PriceSeries series) {
+                TimeRange range = alignToInterval(calculateTimeRange(timespan), getIntervalMillis(timespan));
+                callback.onSuccess(series.slice(range.startTime, range.endTime));
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                callback.onFailure(errorMessage);
+            }
+        };
+    }
+
+    // Where an expired chart can be refreshed from instead of refetching its whole window: the
+    // newest stored candle, which is fetched again because it may still have been forming.
+    // -1 when the stored window is missing or does not reach the new one, so a gap would be left.
+    private static long getAppendStart(Context context, String symbol, String timespan, String interval,
+                                       TimeRange timeRange) {
+        try {
+            MarketDataStore store = getStore(context);
+            MarketDataStore.SeriesWindow window = store.getSeriesWindow(symbol, timespan);
+            if (window == null || !window.interval.equals(interval) || window.endTime < timeRange.startTime) {
+                return -1;
+            }
+            long lastCandle = store.getLastCandleTime(symbol, interval);
+            if (lastCandle < timeRange.startTime || lastCandle > timeRange.endTime) {
+                return -1;
+            }
+            return lastCandle;
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading stored candles for " + symbol + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // The stored candles from windowStart up to appendFrom followed by the fetched ones. Saving
+    // the result replaces everything from appendFrom on, so repeating a refresh changes nothing.
+    private static PriceSeries appendCandles(Context context, String symbol, String interval, long windowStart,
+                                             long appendFrom, PriceSeries fetched) throws IOException {
+        PriceSeries head = getStore(context).getCandles(symbol, interval, windowStart, appendFrom - 1);
+        if (head == null) {
+            throw new IOException("Stored candles for " + symbol + " disappeared");
+        }
+        long[] timestamps = new long[head.size() + fetched.size()];
+        float[] closes = new float[timestamps.length];
+        for (int i = 0; i < head.size(); i++) {
+            timestamps[i] = head.getTimestamp(i);
+            closes[i] = head.getClose(i);
+        }
+        for (int i = 0; i < fetched.size(); i++) {
+            timestamps[head.size() + i] = fetched.getTimestamp(i);
+            closes[head.size() + i] = fetched.getClose(i);
+        }
+        return new PriceSeries(timestamps, closes, timestamps.length);
     }
 
+    // Ends now while the market is open, otherwise at the last close, so weekends and holidays
+    // still chart the most recent session
     private static TimeRange calculateTimeRange(String timespan) {
+        long now = System.currentTimeMillis();
         Calendar calEnd = Calendar.getInstance(TimeZone.getTimeZone(TIMEZONE_ISRAEL));
         Calendar calStart = Calendar.getInstance(TimeZone.getTimeZone(TIMEZONE_ISRAEL));
-
-        int currentHour = calEnd.get(Calendar.HOUR_OF_DAY);
-        if (currentHour < MARKET_OPEN_HOUR || currentHour >= MARKET_CLOSE_HOUR) {
-            if (currentHour < MARKET_OPEN_HOUR) {
-                calEnd.add(Calendar.DAY_OF_YEAR, -1);
-            }
-            calEnd.set(Calendar.HOUR_OF_DAY, MARKET_CLOSE_HOUR);
-            calEnd.set(Calendar.MINUTE, 0);
-            calEnd.set(Calendar.SECOND, 0);
-            calEnd.set(Calendar.MILLISECOND, 0);
+        if (!marketSession.isOpen(now)) {
+            calEnd.setTimeInMillis(marketSession.getLastClose(now));
         }
 
         switch (timespan) {
             case "1D":
-                calStart.setTimeInMillis(calEnd.getTimeInMillis());
-                calStart.add(Calendar.DAY_OF_YEAR, -1);
-                calStart.set(Calendar.HOUR_OF_DAY, MARKET_OPEN_HOUR);
-                calStart.set(Calendar.MINUTE, 0);
+                calStart.setTimeInMillis(marketSession.getSessionOpen(calEnd.getTimeInMillis()));
                 break;
             case "1W":
                 calStart.setTimeInMillis(calEnd.getTimeInMillis());
@@ -206,6 +1080,22 @@ public class ApiManager {
         return new TimeRange(calStart.getTimeInMillis(), calEnd.getTimeInMillis());
     }
 
+    private static long getIntervalMillis(String timespan) {
+        switch (timespan) {
+            case "1W": return TimeUnit.MINUTES.toMillis(15);
+            case "1M": return TimeUnit.MINUTES.toMillis(60);
+            case "3M":
+            case "1Y": return TimeUnit.DAYS.toMillis(1);
+            default: return TimeUnit.MINUTES.toMillis(5);
+        }
+    }
+
+    private static TimeRange alignToInterval(TimeRange range, long intervalMillis) {
+        long start = range.startTime - Math.floorMod(range.startTime, intervalMillis);
+        long end = range.endTime + (intervalMillis - Math.floorMod(range.endTime, intervalMillis)) % intervalMillis;
+        return new TimeRange(start, end);
+    }
+
     private static String getInterval(String timespan) {
         switch (timespan) {
             case "1D": return "5m";
@@ -217,71 +1107,149 @@ public class ApiManager {
         }
     }
 
-    private static JSONObject processYahooResponse(JSONObject yahooResponse, String timespan, TimeRange timeRange)
-            throws Exception {
-        JSONObject result = new JSONObject();
-        String timeSeriesKey = getTimeSeriesKey(timespan);
-        JSONObject timeSeries = new JSONObject();
-
-        JSONObject chart = yahooResponse.getJSONObject("chart");
-        JSONArray resultArray = chart.getJSONArray("result");
-
-        if (resultArray.length() == 0) {
-            throw new Exception("No data in response");
+    // Alpha Vantage GLOBAL_QUOTE: one symbol per call and a small daily quota, so it only takes
+    // hedges for a handful of symbols and only when a token is free right now.
+    private static class AlphaVantageQuoteProvider implements QuoteProvider {
+        @Override
+        public String getName() {
+            return "AlphaVantage";
         }
 
-        JSONObject data = resultArray.getJSONObject(0);
-        JSONArray timestamps = data.getJSONArray("timestamp");
-        JSONObject indicators = data.getJSONObject("indicators");
-        JSONArray quote = indicators.getJSONArray("quote");
+        // Any budget left is worth a call: fetch() lets the planner pick which symbols get it
+        // and the rest fail over. The ledger was restored when the store was first opened,
+        // which every quote request does before it reaches a provider.
+        @Override
+        public boolean canAccept(int symbolCount) {
+            long now = System.currentTimeMillis();
+            return !rateLimitBreaker.isRejecting(now)
+                    && alphaVantageLimiter.getRemainingToday(now) > 0;
+        }
 
-        if (quote.length() == 0) {
-            throw new Exception("No quote data");
+        @Override
+        public boolean canHedge(int symbolCount) {
+            long now = System.currentTimeMillis();
+            return symbolCount <= MAX_ALPHA_VANTAGE_HEDGE_SYMBOLS
+                    && quoteDispatcher.size() == 0
+                    && alphaVantageLimiter.getDelayUntilAvailable(now) == 0
+                    && canAccept(symbolCount);
         }
 
-        JSONObject quoteData = quote.getJSONObject(0);
-        JSONArray closePrices = quoteData.getJSONArray("close");
+        @Override
+        public RequestHandle fetch(Context context, List<String> symbols, Priority priority,
+                                   BatchCallback callback) {
+            // Sending needs a context for the HTTP client and the quota ledger; fail over without one
+            if (context == null) {
+                RequestHandle handle = new RequestHandle();
+                callback.onFailure("No context for Alpha Vantage requests");
+                handle.finish();
+                return handle;
+            }
+            // Planning reads the cached quotes, which may be a store read
+            if (!isCacheThread() && !areQuotesInMemory(symbols)) {
+                List<String> snapshot = new ArrayList<>(symbols);
+                return onCacheThread(() -> fetch(context, snapshot, priority, callback));
+            }
 
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
-        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE_ISRAEL));
+            RequestHandle handle = new RequestHandle();
+            Map<String, Quote> quotes = new HashMap<>();
+            AtomicInteger remaining = new AtomicInteger(symbols.size());
+            long now = System.currentTimeMillis();
 
-        for (int i = 0; i < timestamps.length(); i++) {
-            if (!closePrices.isNull(i)) {
-                long timestamp = timestamps.getLong(i) * 1000; // Convert to milliseconds
+            Map<String, Quote> cachedQuotes = new HashMap<>();
+            for (String symbol : symbols) {
+                Quote cached = getSavedQuote(context, symbol);
+                if (cached != null) {
+                    cachedQuotes.put(symbol, cached);
+                }
+            }
+            List<QuotaPlanner.Decision> decisions = quotaPlanner.plan(symbols, cachedQuotes,
+                    priority == Priority.VISIBLE, quotaLedger.getRemainingToday(now), now);
+
+            // Admitted symbols come first, highest score first, so they reach the queue in that order
+            for (QuotaPlanner.Decision decision : decisions) {
+                String symbol = decision.symbol;
+                Log.d(TAG, "Quota plan: " + decision);
+                QuoteCallback symbolCallback = new QuoteCallback() {
+                    @Override
+                    public void onSuccess(Quote quote) {
+                        synchronized (quotes) {
+                            quotes.put(symbol, quote);
+                        }
+                        onSymbolDone(null);
+                    }
+
+                    @Override
+                    public void onFailure(String errorMessage) {
+                        onSymbolDone(errorMessage);
+                    }
 
-                if (timestamp >= timeRange.startTime && timestamp <= timeRange.endTime) {
-                    JSONObject candleData = new JSONObject();
-                    candleData.put("4. close", closePrices.getDouble(i));
+                    private void onSymbolDone(String errorMessage) {
+                        if (remaining.decrementAndGet() > 0 || handle.isCancelled()) return;
+                        if (quotes.isEmpty()) {
+                            callback.onFailure(errorMessage != null ? errorMessage : "No data available");
+                        } else {
+                            callback.onSuccess(quotes);
+                        }
+                        handle.finish();
+                    }
+                };
 
-                    String dateStr = dateFormat.format(new Date(timestamp));
-                    timeSeries.put(dateStr, candleData);
+                if (decision.admitted) {
+                    enqueueQuoteRequest(new PendingRequest(symbol, symbolCallback, context, priority, handle));
+                } else {
+                    symbolCallback.onFailure("Deferred by quota planner");
                 }
             }
+            return handle;
         }
-
-        result.put(timeSeriesKey, timeSeries);
-        return result;
     }
 
-    private static String getTimeSeriesKey(String timespan) {
-        return timespan.equals("1D") ? "Time Series (5min)" : "Time Series (Daily)";
+    private static void enqueueQuoteRequest(PendingRequest request) {
+        quoteDispatcher.submit(request, request.priority == Priority.VISIBLE);
     }
 
-    private static synchronized void processQueue() {
-        if (isProcessingQueue || requestQueue.isEmpty()) return;
-        isProcessingQueue = true;
+    // Runs on the dispatcher thread. The dispatcher sends queued requests as fast as the rate
+    // limiter allows, visible lane first, and sleeps until the next slot instead of a fixed spacing.
+    // While the rate limit breaker is open, queued requests are dropped here before they spend
+    // a token and their callers fall back to the cache.
+    private static class QuoteSink implements RequestDispatcher.Sink<PendingRequest> {
+        @Override
+        public boolean isCancelled(PendingRequest request) {
+            return request.handle.isCancelled()
+                    || abandonQuoteFlight(request.symbol)
+                    || rateLimitBreaker.isRejecting(System.currentTimeMillis());
+        }
+
+        @Override
+        public void onCancelled(PendingRequest request) {
+            request.callback.onFailure(request.handle.isCancelled() ? "Request cancelled" : "API rate limit reached");
+        }
 
-        PendingRequest request = requestQueue.poll();
-        if (request != null) {
-            executeQuoteRequest(request);
+        @Override
+        public void onQuotaExhausted(PendingRequest request) {
+            Log.w(TAG, "Daily Alpha Vantage quota used up, skipping " + request.symbol);
+            request.callback.onFailure("Daily API quota exhausted");
         }
 
-        handler.postDelayed(() -> {
-            isProcessingQueue = false;
-            if (!requestQueue.isEmpty()) {
-                processQueue();
+        @Override
+        public void send(PendingRequest request) {
+            if (!rateLimitBreaker.tryAcquire(System.currentTimeMillis())) {
+                request.callback.onFailure("API rate limit reached");
+                return;
+            }
+            if (rateLimitBreaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+                Log.d(TAG, "Probing Alpha Vantage rate limit with " + request.symbol);
             }
-        }, REQUEST_SPACING);
+            try {
+                quotaLedger.recordSpend(request.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE),
+                        request.symbol, System.currentTimeMillis());
+                executeQuoteRequest(request);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error sending quote request for " + request.symbol, e);
+                rateLimitBreaker.onInconclusive();
+                request.callback.onFailure("Error sending request: " + e.getMessage());
+            }
+        }
     }
 
     private static void executeQuoteRequest(PendingRequest request) {
@@ -290,7 +1258,7 @@ public class ApiManager {
 
         Request okRequest = new Request.Builder().url(url).build();
 
-        alphaVantageClient.newCall(okRequest).enqueue(new Callback() {
+        HttpClientProvider.get(request.context).newCall(okRequest).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 handleQuoteFailure(request, e);
@@ -305,39 +1273,34 @@ public class ApiManager {
 
     private static void handleQuoteFailure(PendingRequest request, IOException e) {
         Log.e(TAG, "Network error for " + request.symbol + ": " + e.getMessage());
-        JSONObject cachedData = getSavedStockData(request.context, request.symbol);
-        if (cachedData != null) {
-            request.callback.onSuccess(cachedData);
-        } else {
-            provideDummyData(request.symbol, request.callback);
-        }
+        rateLimitBreaker.onInconclusive();
+        request.callback.onFailure("Network error: " + e.getMessage());
     }
 
     private static void handleQuoteResponse(PendingRequest request, Response response) {
         try {
-            String jsonData = response.body().string();
-            JSONObject result = new JSONObject(jsonData);
-
-            if (result.has("Note")) {
-                String note = result.getString("Note");
-                Log.w(TAG, "API Message: " + note);
-                if (note.contains("API call frequency")) {
-                    handleRateLimitExceeded(request);
+            MarketDataParser.GlobalQuoteResult result = MarketDataParser.readGlobalQuote(
+                    response.body().charStream(), request.symbol, System.currentTimeMillis());
+
+            if (result.note != null) {
+                Log.w(TAG, "API Message: " + result.note);
+                if (isRateLimitNote(result.note)) {
+                    handleRateLimitExceeded(request, result.note);
                     return;
                 }
             }
 
-            if (!result.has("Global Quote")) {
+            if (result.quote == null) {
                 throw new Exception("Invalid API response");
             }
 
-            saveStockData(request.context, request.symbol, result);
-            request.callback.onSuccess(result);
-            checkPriceAlert(request.context, request.symbol, result);
+            rateLimitBreaker.onSuccess();
+            request.callback.onSuccess(result.quote);
 
         } catch (Exception e) {
             Log.e(TAG, "Error processing response: " + e.getMessage());
-            handleQuoteError(request, e);
+            rateLimitBreaker.onInconclusive();
+            request.callback.onFailure("Error processing data: " + e.getMessage());
         } finally {
             if (response.body() != null) {
                 response.body().close();
@@ -345,132 +1308,357 @@ public class ApiManager {
         }
     }
 
-    private static void handleTimeSeriesFailure(PendingRequest request, IOException e) {
-        Log.e(TAG, "Network error for " + request.symbol + " time series: " + e.getMessage());
-        JSONObject cachedData = getSavedTimeSeriesData(request.context, request.symbol, request.timespan);
-        if (cachedData != null) {
-            request.callback.onSuccess(cachedData);
+    private static void handleTimeSeriesFailure(Context context, String symbol, String timespan,
+                                                SeriesCallback callback, IOException e) {
+        Log.e(TAG, "Network error for " + symbol + " time series: " + e.getMessage());
+        PriceSeries cachedSeries = getSavedTimeSeriesData(context, symbol, timespan);
+        if (cachedSeries != null) {
+            callback.onSuccess(cachedSeries);
         } else {
-            request.callback.onFailure("Network error: " + e.getMessage());
+            callback.onFailure("Network error: " + e.getMessage());
         }
     }
 
-    private static void handleTimeSeriesError(PendingRequest request, Exception e) {
-        JSONObject cachedData = getSavedTimeSeriesData(request.context,
-                request.symbol,
-                request.timespan);
-        if (cachedData != null) {
-            request.callback.onSuccess(cachedData);
+    private static void handleTimeSeriesError(Context context, String symbol, String timespan,
+                                              SeriesCallback callback, Exception e) {
+        PriceSeries cachedSeries = getSavedTimeSeriesData(context, symbol, timespan);
+        if (cachedSeries != null) {
+            callback.onSuccess(cachedSeries);
         } else {
-            request.callback.onFailure("Error processing data: " + e.getMessage());
+            callback.onFailure("Error processing data: " + e.getMessage());
         }
     }
 
-    private static void handleRateLimitExceeded(PendingRequest request) {
-        Log.e(TAG, "API rate limit reached for " + request.symbol);
-        if (request.context != null) {
+    private static boolean isRateLimitNote(String note) {
+        return note.contains("API call frequency") || note.contains("rate limit");
+    }
+
+    // Opens the breaker until the limit the note refers to has reset: the next US Eastern
+    // midnight for the daily quota, otherwise a full minute window.
+    private static void handleRateLimitExceeded(PendingRequest request, String note) {
+        long now = System.currentTimeMillis();
+        long reopenAt = note.contains("per day") || alphaVantageLimiter.isDailyQuotaExhausted(now)
+                ? alphaVantageLimiter.getNextResetTime(now)
+                : now + Math.max(RATE_LIMIT_COOLDOWN, alphaVantageLimiter.getDelayUntilAvailable(now));
+
+        if (rateLimitBreaker.trip(reopenAt)) {
+            Log.e(TAG, "API rate limit reached for " + request.symbol + ", serving cached quotes until "
+                    + new Date(reopenAt));
             handler.post(() -> {
                 Toast.makeText(request.context,
                         "API rate limit reached. Using cached data.",
                         Toast.LENGTH_SHORT).show();
             });
+            quoteDispatcher.wakeUp();
+        } else {
+            Log.w(TAG, "Alpha Vantage still rate limited until " + new Date(reopenAt));
         }
+        request.callback.onFailure("API rate limit reached");
+    }
 
-        JSONObject cachedData = getSavedStockData(request.context, request.symbol);
-        if (cachedData != null) {
-            request.callback.onSuccess(cachedData);
-        } else {
-            provideDummyData(request.symbol, request.callback);
+    // Opens the store on the cache thread ahead of the first request, so the first screen finds
+    // quotes in memory and the index loaded
+    public static void preloadCache(Context context) {
+        Context appContext = context.getApplicationContext();
+        cacheExecutor.execute(() -> getStore(appContext));
+    }
+
+    private static boolean isCacheThread() {
+        return Thread.currentThread() == cacheThread;
+    }
+
+    // Runs a request that has to read the store on the cache thread. The returned handle stands
+    // in for the one the request creates there.
+    private static RequestHandle onCacheThread(Supplier<RequestHandle> request) {
+        RequestHandle handle = new RequestHandle();
+        cacheExecutor.execute(() -> {
+            if (handle.isCancelled()) return;
+            RequestHandle inner = request.get();
+            handle.addOnCancelListener(inner::cancel);
+            inner.addOnReleaseListener(handle::finish);
+        });
+        return handle;
+    }
+
+    // Whether getSavedQuote can answer without reading the store
+    private static boolean isQuoteInMemory(String symbol) {
+        return quoteCache.peek(symbol) != null || (storeIndexLoaded && !storedQuotes.contains(symbol));
+    }
+
+    private static boolean areQuotesInMemory(Collection<String> symbols) {
+        for (String symbol : symbols) {
+            if (!isQuoteInMemory(symbol)) return false;
         }
+        return true;
     }
 
-    private static void handleQuoteError(PendingRequest request, Exception e) {
-        JSONObject cachedData = getSavedStockData(request.context, request.symbol);
-        if (cachedData != null) {
-            request.callback.onSuccess(cachedData);
-        } else {
-            provideDummyData(request.symbol, request.callback);
+    // Only a fresh chart in memory is answered in place; a stale one is refreshed from the
+    // newest stored candle, which is a store read
+    private static boolean isFreshSeriesInMemory(String symbol, String timespan) {
+        CachedSeries cached = seriesCache.peek(symbol + "_" + timespan);
+        return cached != null && isSeriesFresh(cached, timespan);
+    }
+
+    // Loads every stored quote into memory, as far as its budget goes, and the keys of
+    // everything stored
+    private static void loadStoreIndex(MarketDataStore store) {
+        try {
+            for (Quote quote : store.getQuotes()) {
+                storedQuotes.add(quote.getSymbol());
+                quoteCache.put(quote.getSymbol(), quote);
+            }
+            storedSeries.addAll(store.getSeriesKeys());
+            storeIndexLoaded = true;
+            Log.d(TAG, "Preloaded " + storedQuotes.size() + " quotes, " + storedSeries.size() + " charts indexed");
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading the cache index: " + e.getMessage());
         }
     }
 
-    private static void saveStockData(Context context, String symbol, JSONObject data) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.putString("stock_" + symbol, data.toString());
-        editor.putLong(LAST_UPDATE_KEY + "_" + symbol, System.currentTimeMillis());
-        editor.apply();
-        Log.d(TAG, "Saved data for " + symbol);
+    // Opens the quote and chart store, moving anything still cached in StockPrefs into it and
+    // loading its index and the day's Alpha Vantage spend the first time
+    private static MarketDataStore getStore(Context context) {
+        MarketDataStore store = MarketDataStore.get(context);
+        synchronized (ApiManager.class) {
+            if (!storeMigrated) {
+                storeMigrated = true;
+                registerMemoryCallbacks(context);
+                try {
+                    store.migrateFrom(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE),
+                            ApiManager::getInterval);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error migrating cached market data: " + e.getMessage());
+                }
+                trimStore(store, true);
+                loadStoreIndex(store);
+                quotaLedger.restore(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE),
+                        System.currentTimeMillis());
+            }
+        }
+        return store;
     }
 
-    private static JSONObject getSavedStockData(Context context, String symbol) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String data = prefs.getString("stock_" + symbol, null);
-        if (data != null) {
-            try {
-                return new JSONObject(data);
-            } catch (Exception e) {
-                Log.e(TAG, "Error parsing saved stock data: " + e.getMessage());
+    private static void trimStore(MarketDataStore store, boolean force) {
+        long now = System.currentTimeMillis();
+        synchronized (ApiManager.class) {
+            if (!force && now - lastStoreTrim < STORE_TRIM_INTERVAL) {
+                return;
             }
+            lastStoreTrim = now;
+        }
+        Set<String> pinned = new HashSet<>(heldSymbols);
+        pinned.addAll(watchedSymbols);
+        try {
+            // Evicted entries leave the index too, so a miss in memory is answered there instead
+            // of going to the cache thread for a store read that finds nothing
+            MarketDataStore.Eviction eviction = store.trimToBudget(storeBudget, pinned);
+            storedQuotes.removeAll(eviction.quoteSymbols);
+            storedSeries.removeAll(eviction.seriesKeys);
+        } catch (Exception e) {
+            Log.e(TAG, "Error trimming cached market data: " + e.getMessage());
         }
-        return null;
     }
 
-    private static boolean shouldUpdateStock(Context context, String symbol) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        long lastUpdateTime = prefs.getLong(LAST_UPDATE_KEY + "_" + symbol, 0);
-        return System.currentTimeMillis() - lastUpdateTime >= CACHE_DURATION;
+    // The maintenance calls below drop entries from memory right away, so requests made after
+    // them miss, and change the store on the cache thread, behind any store read already queued
+    public static void setCacheBudget(Context context, long maxBytes, CacheBudget.Policy policy) {
+        Context appContext = context.getApplicationContext();
+        storeBudget = new CacheBudget(maxBytes, policy);
+        cacheExecutor.execute(() -> trimStore(getStore(appContext), true));
     }
 
-    private static void saveTimeSeriesData(Context context, String symbol,
-                                           String timespan, JSONObject data) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        String key = GRAPH_DATA_PREFIX + "_" + symbol + "_" + timespan;
-        editor.putString(key, data.toString());
-        editor.putLong(LAST_GRAPH_UPDATE_KEY + "_" + symbol + "_" + timespan,
-                System.currentTimeMillis());
-        editor.apply();
-        Log.d(TAG, "Saved time series data for " + symbol + " timespan: " + timespan);
+    // Drops the cached quote and charts of one symbol, in memory and on disk
+    public static void invalidateSymbol(Context context, String symbol) {
+        Context appContext = context.getApplicationContext();
+        Runnable dropFromMemory = () -> {
+            quoteCache.remove(symbol);
+            seriesCache.removeIf((key, cached) -> key.startsWith(symbol + "_"));
+            storedQuotes.remove(symbol);
+            storedSeries.removeIf(key -> key.startsWith(symbol + "_"));
+        };
+        dropFromMemory.run();
+        cacheExecutor.execute(() -> {
+            getStore(appContext).invalidateSymbol(symbol);
+            // A read queued before this one may have put them back
+            dropFromMemory.run();
+        });
     }
 
-    private static JSONObject getSavedTimeSeriesData(Context context, String symbol,
-                                                     String timespan) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String key = GRAPH_DATA_PREFIX + "_" + symbol + "_" + timespan;
-        String data = prefs.getString(key, null);
-        if (data != null) {
-            try {
-                return new JSONObject(data);
-            } catch (Exception e) {
-                Log.e(TAG, "Error parsing saved time series data: " + e.getMessage());
+    // Drops one cached chart. Timespans sliced from a wider one drop that whole tier.
+    public static void invalidateChart(Context context, String symbol, String timespan) {
+        Context appContext = context.getApplicationContext();
+        String tier = getTierTimespan(timespan);
+        Runnable dropFromMemory = () -> {
+            seriesCache.remove(symbol + "_" + tier);
+            storedSeries.remove(symbol + "_" + tier);
+        };
+        dropFromMemory.run();
+        cacheExecutor.execute(() -> {
+            getStore(appContext).invalidateSeries(symbol, tier);
+            dropFromMemory.run();
+        });
+    }
+
+    // Drops cached quotes and charts fetched more than maxAgeMillis ago
+    public static void invalidateOlderThan(Context context, long maxAgeMillis) {
+        Context appContext = context.getApplicationContext();
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        Runnable dropFromMemory = () -> {
+            quoteCache.removeIf((symbol, quote) -> quote.getFetchedAt() < cutoff);
+            seriesCache.removeIf((key, cached) -> cached.fetchedAt < cutoff);
+        };
+        dropFromMemory.run();
+        cacheExecutor.execute(() -> {
+            getStore(appContext).invalidateOlderThan(cutoff);
+            dropFromMemory.run();
+        });
+    }
+
+    // Everything in the memory caches can be read back from the store, so it is given up
+    // first when the system asks for memory
+    private static void registerMemoryCallbacks(Context context) {
+        context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                ApiManager.onTrimMemory(level);
+            }
+
+            @Override
+            public void onLowMemory() {
+                ApiManager.onTrimMemory(TRIM_MEMORY_COMPLETE);
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {
             }
+        });
+    }
+
+    public static void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            quoteCache.evictAll();
+            seriesCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            // Quotes are tiny and needed by every screen; charts are only re-read when opened
+            seriesCache.trimToSize(seriesCache.getMaxBytes() / 4);
+        } else {
+            return;
         }
-        return null;
+        Log.d(TAG, "Trimmed memory caches at level " + level + ": quotes " + quoteCache.getStats()
+                + ", charts " + seriesCache.getStats());
     }
 
-    private static boolean shouldUpdateTimeSeriesData(Context context, String symbol,
-                                                      String timespan) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        long lastUpdateTime = prefs.getLong(LAST_GRAPH_UPDATE_KEY + "_" + symbol + "_" + timespan, 0);
-        return System.currentTimeMillis() - lastUpdateTime >= CACHE_DURATION;
+    public static MemoryCache.Stats getQuoteCacheStats() {
+        return quoteCache.getStats();
+    }
+
+    public static MemoryCache.Stats getSeriesCacheStats() {
+        return seriesCache.getStats();
+    }
+
+    // Quotes are kept in memory once loaded, so a cache hit never touches the database
+    private static void saveQuote(Context context, Quote quote) {
+        String symbol = quote.getSymbol();
+        quoteCache.put(symbol, quote);
+        storedQuotes.add(symbol);
+        try {
+            getStore(context).putQuote(quote);
+            Log.d(TAG, "Saved data for " + symbol);
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving quote for " + symbol + ": " + e.getMessage());
+        }
+    }
+
+    private static Quote getSavedQuote(Context context, String symbol) {
+        Quote quote = quoteCache.get(symbol);
+        if (quote != null || (storeIndexLoaded && !storedQuotes.contains(symbol))) {
+            return quote;
+        }
+
+        try {
+            quote = getStore(context).getQuote(symbol);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading saved quote for " + symbol + ": " + e.getMessage());
+            return null;
+        }
+        if (quote != null) {
+            quoteCache.put(symbol, quote);
+        }
+        return quote;
+    }
+
+    private static boolean shouldUpdateStock(Quote quote) {
+        return !marketSession.isFresh(quote.getFetchedAt(), QUOTE_INTRADAY_TTL, System.currentTimeMillis());
+    }
+
+    // How long until a quote fetched now goes stale: the intraday TTL while the market is open,
+    // otherwise the time until the next open
+    public static long getQuoteRefreshDelay() {
+        long now = System.currentTimeMillis();
+        return marketSession.getExpiresAt(now, QUOTE_INTRADAY_TTL) - now;
     }
 
-    private static void provideDummyData(String symbol, ApiCallback callback) {
+    private static void saveTimeSeriesData(Context context, String symbol, String timespan,
+                                           TimeRange timeRange, PriceSeries series) {
+        long now = System.currentTimeMillis();
+        seriesCache.put(symbol + "_" + timespan, new CachedSeries(series, now));
+        storedSeries.add(symbol + "_" + timespan);
+        try {
+            MarketDataStore store = getStore(context);
+            store.putSeries(symbol, timespan, getInterval(timespan),
+                    timeRange.startTime, timeRange.endTime, series, now);
+            Log.d(TAG, "Saved time series data for " + symbol + " timespan: " + timespan);
+            trimStore(store, false);
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving time series data: " + e.getMessage());
+        }
+    }
+
+    // The chart and when it was fetched, from memory if it has been read this session
+    private static CachedSeries getCachedSeries(Context context, String symbol, String timespan) {
+        String key = symbol + "_" + timespan;
+        CachedSeries cached = seriesCache.get(key);
+        if (cached != null || (storeIndexLoaded && !storedSeries.contains(key))) {
+            return cached;
+        }
+
         try {
-            JSONObject dummyData = new JSONObject();
-            JSONObject globalQuote = new JSONObject();
-            globalQuote.put("01. symbol", symbol);
-            globalQuote.put("05. price", "150.00");
-            globalQuote.put("08. previous close", "148.00");
-            globalQuote.put("07. latest trading day", new Date().toString());
-            dummyData.put("Global Quote", globalQuote);
-            callback.onSuccess(dummyData);
-        } catch (Exception ex) {
-            callback.onFailure("Error creating dummy data");
+            MarketDataStore store = getStore(context);
+            PriceSeries series = store.getSeries(symbol, timespan);
+            if (series == null) {
+                return null;
+            }
+            cached = new CachedSeries(series, store.getSeriesFetchedAt(symbol, timespan));
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading saved time series data: " + e.getMessage());
+            return null;
         }
+        seriesCache.put(key, cached);
+        return cached;
     }
 
-    private static void checkPriceAlert(Context context, String symbol, JSONObject data) {
+    private static PriceSeries getSavedTimeSeriesData(Context context, String symbol,
+                                                      String timespan) {
+        CachedSeries cached = getCachedSeries(context, symbol, timespan);
+        return cached != null ? cached.series : null;
+    }
+
+    private static boolean shouldUpdateTimeSeriesData(Context context, String symbol,
+                                                      String timespan) {
+        CachedSeries cached = getCachedSeries(context, symbol, timespan);
+        return cached == null || !isSeriesFresh(cached, timespan);
+    }
+
+    private static boolean isSeriesFresh(CachedSeries cached, String timespan) {
+        // A new bar can appear once per chart interval, so that is as fresh as it needs to be
+        long intradayTtl = Math.min(getIntervalMillis(timespan), MAX_SERIES_INTRADAY_TTL);
+        return marketSession.isFresh(cached.fetchedAt, intradayTtl, System.currentTimeMillis());
+    }
+
+    private static void checkPriceAlert(Context context, Quote quote) {
+        String symbol = quote.getSymbol();
         try {
             FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
             if (currentUser == null) return;
@@ -485,10 +1673,9 @@ public class ApiManager {
                 return;
             }
 
-            JSONObject quote = data.getJSONObject("Global Quote");
-            double currentPrice = Double.parseDouble(quote.getString("05. price"));
-            double previousClose = Double.parseDouble(quote.getString("08. previous close"));
-            double priceChange = ((currentPrice - previousClose) / previousClose) * 100;
+            double currentPrice = quote.getPrice();
+            double previousClose = quote.getPreviousClose();
+            double priceChange = quote.getChangePercent();
 
             DatabaseReference settingsRef = FirebaseDatabase.getInstance().getReference()
                     .child("notification_settings")
@@ -555,11 +1742,21 @@ public class ApiManager {
     }
 
     public static void clearCache(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.clear();
-        editor.apply();
-        Log.d(TAG, "Cache cleared");
+        Context appContext = context.getApplicationContext();
+        Runnable dropFromMemory = () -> {
+            quoteCache.evictAll();
+            seriesCache.evictAll();
+            storedQuotes.clear();
+            storedSeries.clear();
+        };
+        dropFromMemory.run();
+        // StockPrefs is left alone: opening the store moved any cached entries out of it, and what
+        // remains is the Alpha Vantage quota ledger and the alert timestamps, which are not cache
+        cacheExecutor.execute(() -> {
+            getStore(appContext).clear();
+            dropFromMemory.run();
+            Log.d(TAG, "Cache cleared");
+        });
     }
 }
 
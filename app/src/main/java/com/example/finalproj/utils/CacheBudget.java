@@ -0,0 +1,88 @@
+package com.example.finalproj.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+// Decides what to drop from the market data store to keep it under a byte budget. Each entry is
+// a symbol's quote or its candles for one interval. Entries of pinned symbols (held or watched)
+// are never chosen; the rest go least recently used first under LRU, or least often used first
+// (ties broken by recency) under LFU.
+public class CacheBudget {
+
+    public enum Policy { LRU, LFU }
+
+    public static final class Entry {
+        public final String symbol;
+        // Empty for a quote
+        public final String interval;
+        public final long bytes;
+        public final long lastAccess;
+        public final long hits;
+
+        public Entry(String symbol, String interval, long bytes, long lastAccess, long hits) {
+            this.symbol = symbol;
+            this.interval = interval;
+            this.bytes = bytes;
+            this.lastAccess = lastAccess;
+            this.hits = hits;
+        }
+
+        public boolean isQuote() {
+            return interval.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return (isQuote() ? symbol + " quote" : symbol + " " + interval) + " " + bytes + "B";
+        }
+    }
+
+    private static final Comparator<Entry> LEAST_RECENT = (a, b) -> Long.compare(a.lastAccess, b.lastAccess);
+    private static final Comparator<Entry> LEAST_FREQUENT = (a, b) -> Long.compare(a.hits, b.hits);
+
+    private final long maxBytes;
+    private final Policy policy;
+
+    public CacheBudget(long maxBytes, Policy policy) {
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    // The entries to evict, in eviction order, for the rest to fit in maxBytes. When the pinned
+    // entries alone are over budget, everything unpinned is chosen and the store stays over.
+    public List<Entry> selectVictims(Collection<Entry> entries, Set<String> pinned) {
+        long total = 0;
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : entries) {
+            total += entry.bytes;
+            if (!pinned.contains(entry.symbol)) {
+                candidates.add(entry);
+            }
+        }
+
+        List<Entry> victims = new ArrayList<>();
+        if (total <= maxBytes) {
+            return victims;
+        }
+        candidates.sort(policy == Policy.LRU
+                ? LEAST_RECENT.thenComparing(LEAST_FREQUENT)
+                : LEAST_FREQUENT.thenComparing(LEAST_RECENT));
+        for (Entry candidate : candidates) {
+            if (total <= maxBytes) break;
+            victims.add(candidate);
+            total -= candidate.bytes;
+        }
+        return victims;
+    }
+}
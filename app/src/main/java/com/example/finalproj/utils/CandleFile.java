@@ -0,0 +1,456 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.PriceSeries;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Binary file holding the candles of one symbol and interval, read through a memory-mapped
+// buffer. Both versions share a little-endian header:
+//
+//   int   magic 'CNDL'
+//   int   format version
+//   int   count
+//   int   timestamp unit in millis (1000 when every timestamp is a whole second, else 1)
+//   long  first timestamp, epoch millis
+//
+// Version 1 (read only) follows it with two fixed-width columns:
+//
+//   int   count timestamp deltas from the previous candle, in units (the first is 0)
+//   float count closes
+//
+// Version 2, which is written, stores the same columns as zigzag varints in blocks of up to
+// BLOCK_CANDLES candles, each encoded and optionally deflated on its own:
+//
+//   long  last timestamp, epoch millis
+//   int   price scale: closes are stored as round(close * scale), or as float bits when 0
+//   int   candles per block
+//   int   block count
+//   index, one entry per block:
+//     long  timestamp of the block's first candle
+//     int   payload offset from the start of the file
+//     int   stored payload length
+//     int   payload length before deflating; the payload is deflated when it differs
+//   block payloads: n - 1 delta-of-deltas of the timestamps in units, then the first scaled
+//                   close and n - 1 deltas of the scaled closes (or n raw float bits)
+//
+// Candles arrive at a fixed interval and closes move by a few cents, so most varints take one
+// or two bytes where version 1 spends eight per candle. The scale is the smallest power of ten
+// that gives every close back exactly, so encoding is lossless. Unlike version 1 the columns
+// cannot be walked in place: a full read of a deflated file takes two to four times as long as
+// version 1, though still well under the JSON parse (see CandleFileBenchmark). The index keeps
+// range reads from paying for the whole file: only the blocks that overlap the window are
+// inflated and decoded, and undeflated blocks are decoded straight out of the mapping.
+// Files are written to a temporary name and renamed, so readers never see a partial file.
+public final class CandleFile {
+    static final int MAGIC = 0x434E444C;
+    static final int VERSION = 2;
+    static final int V1_HEADER_BYTES = 24;
+    static final int HEADER_BYTES = 44;
+    static final int INDEX_ENTRY_BYTES = 20;
+    // Half a year of daily candles or five sessions of 15-minute ones. Smaller blocks deflate
+    // too poorly to keep 1Y files at a tenth of the JSON
+    static final int BLOCK_CANDLES = 128;
+    private static final int MAX_SCALE = 10_000;
+
+    private CandleFile() {
+    }
+
+    public static void write(File file, PriceSeries series) throws IOException {
+        int count = series.size();
+        long first = count > 0 ? series.getTimestamp(0) : 0;
+        long last = count > 0 ? series.getTimestamp(count - 1) : 0;
+        int unit = 1000;
+        for (int i = 0; i < count; i++) {
+            if (series.getTimestamp(i) % 1000 != 0) {
+                unit = 1;
+            }
+            if (i > 0 && series.getTimestamp(i) < series.getTimestamp(i - 1)) {
+                throw new IOException("Candle timestamps out of order at index " + i);
+            }
+        }
+        int scale = findScale(series);
+
+        int blocks = (count + BLOCK_CANDLES - 1) / BLOCK_CANDLES;
+        byte[][] stored = new byte[blocks][];
+        int[] storedLengths = new int[blocks];
+        int[] rawLengths = new int[blocks];
+        int payloadBytes = 0;
+        for (int b = 0; b < blocks; b++) {
+            VarintWriter payload = encodeBlock(series, b * BLOCK_CANDLES,
+                    Math.min(count, (b + 1) * BLOCK_CANDLES), unit, scale);
+            byte[] deflated = deflate(payload.bytes, payload.length);
+            stored[b] = deflated != null ? deflated : payload.bytes;
+            storedLengths[b] = deflated != null ? deflated.length : payload.length;
+            rawLengths[b] = payload.length;
+            payloadBytes += storedLengths[b];
+        }
+
+        int indexBytes = blocks * INDEX_ENTRY_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + indexBytes + payloadBytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(unit).putLong(first)
+                .putLong(last).putInt(scale).putInt(BLOCK_CANDLES).putInt(blocks);
+        int offset = HEADER_BYTES + indexBytes;
+        for (int b = 0; b < blocks; b++) {
+            buffer.putLong(series.getTimestamp(b * BLOCK_CANDLES)).putInt(offset)
+                    .putInt(storedLengths[b]).putInt(rawLengths[b]);
+            offset += storedLengths[b];
+        }
+        for (int b = 0; b < blocks; b++) {
+            buffer.put(stored[b], 0, storedLengths[b]);
+        }
+        buffer.flip();
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    // Candles [from, to) as one block payload; its first timestamp lives in the index
+    private static VarintWriter encodeBlock(PriceSeries series, int from, int to, int unit, int scale) {
+        VarintWriter payload = new VarintWriter((to - from) * 4 + 16);
+        long previousDelta = 0;
+        for (int i = from + 1; i < to; i++) {
+            long delta = (series.getTimestamp(i) - series.getTimestamp(i - 1)) / unit;
+            payload.writeSigned(delta - previousDelta);
+            previousDelta = delta;
+        }
+        long previousClose = 0;
+        for (int i = from; i < to; i++) {
+            if (scale == 0) {
+                payload.writeUnsigned(Float.floatToIntBits(series.getClose(i)) & 0xFFFFFFFFL);
+            } else {
+                long close = Math.round((double) series.getClose(i) * scale);
+                payload.writeSigned(close - previousClose);
+                previousClose = close;
+            }
+        }
+        return payload;
+    }
+
+    // Smallest power of ten up to MAX_SCALE that turns every close into an integer and back
+    // without changing it; 0 if there is none
+    private static int findScale(PriceSeries series) {
+        for (int scale = 1; scale <= MAX_SCALE; scale *= 10) {
+            boolean exact = true;
+            for (int i = 0; i < series.size() && exact; i++) {
+                float close = series.getClose(i);
+                exact = (float) (Math.round((double) close * scale) / (double) scale) == close;
+            }
+            if (exact) {
+                return scale;
+            }
+        }
+        return 0;
+    }
+
+    // The deflated payload, or null when deflating does not make it smaller
+    private static byte[] deflate(byte[] data, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] out = new byte[length];
+            int size = 0;
+            while (!deflater.finished() && size < out.length) {
+                size += deflater.deflate(out, size, out.length - size);
+            }
+            return deflater.finished() && size < length ? Arrays.copyOf(out, size) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Timestamp of the last candle, or -1 if the file is missing or empty
+    public static long readLastTimestamp(File file) throws IOException {
+        if (!file.isFile()) {
+            return -1;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer mapped = map(raf, file);
+            int count = mapped.getInt(8);
+            if (count == 0) {
+                return -1;
+            }
+            if (mapped.getInt(4) == VERSION) {
+                return mapped.getLong(24);
+            }
+            int unit = mapped.getInt(12);
+            long timestamp = mapped.getLong(16);
+            for (int i = 0; i < count; i++) {
+                timestamp += (long) mapped.getInt(V1_HEADER_BYTES + i * 4) * unit;
+            }
+            return timestamp;
+        }
+    }
+
+    // All candles in the file, or null if there is no file
+    public static PriceSeries read(File file) throws IOException {
+        return read(file, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Candles with startTime <= timestamp <= endTime, or null if there is no file
+    public static PriceSeries read(File file, long startTime, long endTime) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer mapped = map(raf, file);
+            return mapped.getInt(4) == VERSION
+                    ? readBlocks(mapped, file, startTime, endTime)
+                    : readColumns(mapped, startTime, endTime);
+        }
+    }
+
+    // Version 2: decodes the run of blocks that overlaps the window, then trims it
+    private static PriceSeries readBlocks(MappedByteBuffer mapped, File file, long startTime, long endTime)
+            throws IOException {
+        int count = mapped.getInt(8);
+        int blockCandles = mapped.getInt(36);
+        int blocks = mapped.getInt(40);
+        if (count == 0) {
+            return new PriceSeries(new long[0], new float[0], 0);
+        }
+
+        // Block b holds no candle after the first one of block b + 1, nor before its own first
+        int fromBlock = 0;
+        while (fromBlock + 1 < blocks && blockStart(mapped, fromBlock + 1) < startTime) {
+            fromBlock++;
+        }
+        int toBlock = blocks - 1;
+        while (toBlock > fromBlock && blockStart(mapped, toBlock) > endTime) {
+            toBlock--;
+        }
+
+        int base = fromBlock * blockCandles;
+        int size = Math.min(count, (toBlock + 1) * blockCandles) - base;
+        long[] timestamps = new long[size];
+        float[] closes = new float[size];
+        // One inflater for every block of the read; creating one costs more than a small block
+        Inflater inflater = new Inflater();
+        try {
+            for (int b = fromBlock; b <= toBlock; b++) {
+                int at = b * blockCandles - base;
+                decodeBlock(mapped, file, inflater, b, timestamps, closes, at, Math.min(blockCandles, size - at));
+            }
+        } finally {
+            inflater.end();
+        }
+
+        int from = 0;
+        while (from < size && timestamps[from] < startTime) from++;
+        int to = size;
+        while (to > from && timestamps[to - 1] > endTime) to--;
+        if (from == 0 && to == size) {
+            return new PriceSeries(timestamps, closes, size);
+        }
+        return new PriceSeries(Arrays.copyOfRange(timestamps, from, to),
+                Arrays.copyOfRange(closes, from, to), to - from);
+    }
+
+    private static long blockStart(MappedByteBuffer mapped, int block) {
+        return mapped.getLong(HEADER_BYTES + block * INDEX_ENTRY_BYTES);
+    }
+
+    // Decodes block into timestamps and closes from index at, n candles
+    private static void decodeBlock(MappedByteBuffer mapped, File file, Inflater inflater, int block,
+                                    long[] timestamps, float[] closes, int at, int n) throws IOException {
+        int unit = mapped.getInt(12);
+        int scale = mapped.getInt(32);
+        int entry = HEADER_BYTES + block * INDEX_ENTRY_BYTES;
+        long first = mapped.getLong(entry);
+        int offset = mapped.getInt(entry + 8);
+        int storedLength = mapped.getInt(entry + 12);
+        int rawLength = mapped.getInt(entry + 16);
+        if (offset < 0 || storedLength < 0 || (long) offset + storedLength > mapped.capacity()) {
+            throw new IOException("Truncated candle file " + file);
+        }
+
+        ByteBuffer payload = mapped.duplicate();
+        payload.limit(offset + storedLength).position(offset);
+        if (storedLength != rawLength) {
+            payload = ByteBuffer.wrap(inflate(inflater, payload, rawLength, file));
+        }
+
+        try {
+            long timestamp = first;
+            long delta = 0;
+            for (int i = 0; i < n; i++) {
+                if (i > 0) {
+                    delta += readSigned(payload);
+                    timestamp += delta * unit;
+                }
+                timestamps[at + i] = timestamp;
+            }
+            long close = 0;
+            for (int i = 0; i < n; i++) {
+                if (scale == 0) {
+                    closes[at + i] = Float.intBitsToFloat((int) readUnsigned(payload));
+                } else {
+                    close += readSigned(payload);
+                    closes[at + i] = (float) (close / (double) scale);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated candle file " + file);
+        }
+    }
+
+    private static byte[] inflate(Inflater inflater, ByteBuffer stored, int rawLength, File file)
+            throws IOException {
+        byte[] input = new byte[stored.remaining()];
+        stored.get(input);
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            byte[] out = new byte[rawLength];
+            int size = 0;
+            while (size < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(out, size, rawLength - size);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += n;
+            }
+            if (size != rawLength) {
+                throw new IOException("Corrupt candle file " + file);
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt candle file " + file, e);
+        }
+    }
+
+    // Version 1: two bulk copies out of the mapping plus a running sum over the deltas
+    private static PriceSeries readColumns(MappedByteBuffer mapped, long startTime, long endTime) {
+        int count = mapped.getInt(8);
+        int unit = mapped.getInt(12);
+        long base = mapped.getLong(16);
+
+        int[] deltas = new int[count];
+        mapped.position(V1_HEADER_BYTES);
+        IntBuffer deltaColumn = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        deltaColumn.get(deltas);
+
+        long[] timestamps = new long[count];
+        long timestamp = base;
+        int from = count;
+        int to = count;
+        for (int i = 0; i < count; i++) {
+            timestamp += (long) deltas[i] * unit;
+            timestamps[i] = timestamp;
+            if (from == count && timestamp >= startTime) from = i;
+            if (to == count && timestamp > endTime) to = i;
+        }
+        to = Math.max(from, to);
+
+        float[] closes = new float[to - from];
+        mapped.position(V1_HEADER_BYTES + count * 4 + from * 4);
+        FloatBuffer closeColumn = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        closeColumn.get(closes);
+
+        long[] window = from == 0 ? timestamps : Arrays.copyOfRange(timestamps, from, to);
+        return new PriceSeries(window, closes, to - from);
+    }
+
+    // Maps the whole file and checks its header
+    private static MappedByteBuffer map(RandomAccessFile raf, File file) throws IOException {
+        FileChannel channel = raf.getChannel();
+        long size = channel.size();
+        if (size < V1_HEADER_BYTES) {
+            throw new IOException("Truncated candle file " + file);
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (mapped.getInt(0) != MAGIC) {
+            throw new IOException("Not a candle file: " + file);
+        }
+        int version = mapped.getInt(4);
+        int count = mapped.getInt(8);
+        long expected;
+        if (version == 1) {
+            expected = V1_HEADER_BYTES + (long) count * 8;
+        } else if (version == VERSION) {
+            // Block payloads are bounds-checked as they are read
+            expected = size < HEADER_BYTES ? HEADER_BYTES
+                    : HEADER_BYTES + (long) Math.max(0, mapped.getInt(40)) * INDEX_ENTRY_BYTES;
+        } else {
+            throw new IOException("Unsupported candle file version " + version);
+        }
+        if (count < 0 || size < expected) {
+            throw new IOException("Truncated candle file " + file);
+        }
+        return mapped;
+    }
+
+    private static long readSigned(ByteBuffer in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readUnsigned(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in candle file");
+    }
+
+    // Growable buffer of LEB128 varints; signed values are zigzag encoded first
+    private static final class VarintWriter {
+        byte[] bytes;
+        int length;
+
+        VarintWriter(int capacity) {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        void writeSigned(long value) {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        void writeUnsigned(long value) {
+            if (length + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.finalproj.utils;
+
+// Stops calls to a backend that has told us to back off. trip() opens the breaker until a
+// reset time; after that exactly one probe is let through, and its outcome either closes the
+// breaker or opens it again.
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private State state = State.CLOSED;
+    private long reopenAt = 0;
+
+    // True while calls must not go out: before the reset time, or while the probe is pending
+    public synchronized boolean isRejecting(long now) {
+        return (state == State.OPEN && now < reopenAt) || state == State.HALF_OPEN;
+    }
+
+    // Claims permission for one call. Past the reset time the first caller becomes the probe.
+    public synchronized boolean tryAcquire(long now) {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && now >= reopenAt) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    // Returns true only when this call opened a closed breaker, so the caller can tell the
+    // user once per outage rather than once per rejected request.
+    public synchronized boolean trip(long reopenAt) {
+        boolean wasClosed = state == State.CLOSED;
+        state = State.OPEN;
+        this.reopenAt = reopenAt;
+        return wasClosed;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+    }
+
+    // The probe failed for an unrelated reason (e.g. network); let the next call probe again
+    public synchronized void onInconclusive() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getReopenAt() {
+        return reopenAt;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.finalproj.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Callback executor for screens that receive many results at once. Everything submitted before
+// the next frame runs together on the main thread in that frame, followed by a single
+// onBatchDelivered call, so callbacks only update the data and the adapter is notified once
+// per frame instead of once per symbol.
+public class FrameBatchExecutor implements Executor {
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean frameScheduled = new AtomicBoolean(false);
+    private final Runnable onBatchDelivered;
+
+    // For callbacks that notify the adapter themselves and only need running once per frame
+    public FrameBatchExecutor() {
+        this(() -> { });
+    }
+
+    public FrameBatchExecutor(Runnable onBatchDelivered) {
+        this.onBatchDelivered = onBatchDelivered;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        pending.add(command);
+        if (frameScheduled.compareAndSet(false, true)) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                Choreographer.getInstance().postFrameCallback(this::deliver);
+            } else {
+                mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(this::deliver));
+            }
+        }
+    }
+
+    private void deliver(long frameTimeNanos) {
+        // Cleared first so results arriving while this batch runs schedule the next frame
+        frameScheduled.set(false);
+        boolean delivered = false;
+        Runnable command;
+        while ((command = pending.poll()) != null) {
+            command.run();
+            delivered = true;
+        }
+        if (delivered) {
+            onBatchDelivered.run();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.PriceSeries;
+import com.example.finalproj.model.Quote;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Reads what the SharedPreferences cache left in StockPrefs: quotes as the original stock_
+// response JSON or as quote_ fields, and charts as graph_data_ JSON. Holds the entries worth
+// keeping and every cache key to delete; keys the cache did not write are left alone.
+final class LegacyCacheMigration {
+    private static final String QUOTE_PREFIX = "quote_";
+    // The original cache: the whole Alpha Vantage GLOBAL_QUOTE response as a string
+    private static final String STOCK_PREFIX = "stock_";
+    private static final String LAST_UPDATE_PREFIX = "last_update_";
+    private static final String GRAPH_DATA_PREFIX = "graph_data_";
+    private static final String GRAPH_UPDATE_PREFIX = "last_graph_update_";
+
+    static final class LegacySeries {
+        final String symbol;
+        final String timespan;
+        final PriceSeries series;
+        final long fetchedAt;
+
+        LegacySeries(String symbol, String timespan, PriceSeries series, long fetchedAt) {
+            this.symbol = symbol;
+            this.timespan = timespan;
+            this.series = series;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    final List<Quote> quotes = new ArrayList<>();
+    final List<LegacySeries> series = new ArrayList<>();
+    final Set<String> keysToRemove = new LinkedHashSet<>();
+
+    private LegacyCacheMigration() {
+    }
+
+    static LegacyCacheMigration read(Map<String, ?> entries) {
+        LegacyCacheMigration migration = new LegacyCacheMigration();
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(QUOTE_PREFIX) && key.endsWith("_price")) {
+                migration.readQuoteFields(entries, key);
+            } else if (key.startsWith(STOCK_PREFIX)) {
+                migration.readStockResponse(entries, key);
+            } else if (key.startsWith(GRAPH_DATA_PREFIX)) {
+                migration.readGraphData(entries, key);
+            }
+        }
+        return migration;
+    }
+
+    private void readQuoteFields(Map<String, ?> entries, String priceKey) {
+        String symbol = priceKey.substring(QUOTE_PREFIX.length(), priceKey.length() - "_price".length());
+        String previousCloseKey = QUOTE_PREFIX + symbol + "_previous_close";
+        String tradingDayKey = QUOTE_PREFIX + symbol + "_trading_day";
+        String lastUpdateKey = LAST_UPDATE_PREFIX + symbol;
+        keysToRemove.addAll(Arrays.asList(priceKey, previousCloseKey, tradingDayKey, lastUpdateKey));
+
+        Object price = entries.get(priceKey);
+        Object previousClose = entries.get(previousCloseKey);
+        if (price instanceof Long && previousClose instanceof Long) {
+            Object tradingDay = entries.get(tradingDayKey);
+            quotes.add(new Quote(symbol,
+                    Double.longBitsToDouble((Long) price),
+                    Double.longBitsToDouble((Long) previousClose),
+                    tradingDay instanceof String ? (String) tradingDay : "",
+                    getLong(entries, lastUpdateKey)));
+        }
+    }
+
+    private void readStockResponse(Map<String, ?> entries, String key) {
+        String symbol = key.substring(STOCK_PREFIX.length());
+        String lastUpdateKey = LAST_UPDATE_PREFIX + symbol;
+        keysToRemove.add(key);
+        keysToRemove.add(lastUpdateKey);
+        // A quote_ entry for the symbol was written later and wins
+        Object data = entries.get(key);
+        if (entries.containsKey(QUOTE_PREFIX + symbol + "_price") || !(data instanceof String)) return;
+
+        try {
+            Quote quote = MarketDataParser.readGlobalQuote(new StringReader((String) data), symbol,
+                    getLong(entries, lastUpdateKey)).quote;
+            if (quote != null) {
+                quotes.add(quote);
+            }
+        } catch (Exception ignored) {
+            // Unreadable entries are only deleted
+        }
+    }
+
+    // graph_data_<symbol>_<timespan>; symbols never contain '_'. Charts still in the
+    // pre-streaming JSON format do not parse and are only deleted; they will be fetched again.
+    private void readGraphData(Map<String, ?> entries, String key) {
+        String name = key.substring(GRAPH_DATA_PREFIX.length());
+        String updateKey = GRAPH_UPDATE_PREFIX + name;
+        keysToRemove.add(key);
+        keysToRemove.add(updateKey);
+        String[] parts = name.split("_");
+        Object data = entries.get(key);
+        if (parts.length != 2 || !(data instanceof String)) return;
+
+        PriceSeries parsed;
+        try {
+            parsed = MarketDataParser.readSeries(new StringReader((String) data));
+        } catch (Exception e) {
+            return;
+        }
+        if (parsed != null && !parsed.isEmpty()) {
+            series.add(new LegacySeries(parts[0], parts[1], parsed, getLong(entries, updateKey)));
+        }
+    }
+
+    private static long getLong(Map<String, ?> entries, String key) {
+        Object value = entries.get(key);
+        return value instanceof Long ? (Long) value : 0;
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.PriceSeries;
+import com.example.finalproj.model.Quote;
+import com.example.finalproj.model.Tick;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Streaming decoders for the quote and chart endpoints. Responses are read token by token
+// straight from the body, so neither the full JSON string nor a JSONObject tree is built.
+public final class MarketDataParser {
+
+    private MarketDataParser() {
+    }
+
+    public static class GlobalQuoteResult {
+        public final Quote quote;
+        public final String note;
+
+        GlobalQuoteResult(Quote quote, String note) {
+            this.quote = quote;
+            this.note = note;
+        }
+    }
+
+    // Alpha Vantage GLOBAL_QUOTE. The quote is null when the response carries no price, which
+    // is what the API returns for unknown symbols and alongside a rate limit "Note" (newer
+    // responses put the same message under "Information").
+    public static GlobalQuoteResult readGlobalQuote(Reader in, String symbol, long now) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        String note = null;
+        double price = Double.NaN;
+        double previousClose = Double.NaN;
+        String tradingDay = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ((name.equals("Note") || name.equals("Information")) && reader.peek() == JsonToken.STRING) {
+                note = reader.nextString();
+            } else if (name.equals("Global Quote") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "05. price":
+                            price = nextDouble(reader);
+                            break;
+                        case "08. previous close":
+                            previousClose = nextDouble(reader);
+                            break;
+                        case "07. latest trading day":
+                            tradingDay = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        Quote quote = Double.isNaN(price) || Double.isNaN(previousClose)
+                ? null
+                : new Quote(symbol, price, previousClose, tradingDay, now);
+        return new GlobalQuoteResult(quote, note);
+    }
+
+    // Yahoo v7 multi-symbol quote. Results without a market price are left out.
+    public static Map<String, Quote> readYahooQuotes(Reader in, SimpleDateFormat tradingDayFormat,
+                                                     long now) throws IOException {
+        Map<String, Quote> quotes = new HashMap<>();
+        JsonReader reader = new JsonReader(in);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("quoteResponse") || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("result") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Quote quote = readYahooQuote(reader, tradingDayFormat, now);
+                    if (quote != null) {
+                        quotes.put(quote.getSymbol(), quote);
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return quotes;
+    }
+
+    private static Quote readYahooQuote(JsonReader reader, SimpleDateFormat tradingDayFormat,
+                                        long now) throws IOException {
+        String symbol = null;
+        double price = Double.NaN;
+        double previousClose = Double.NaN;
+        long marketTime = now / 1000;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "symbol":
+                    symbol = reader.nextString();
+                    break;
+                case "regularMarketPrice":
+                    price = nextDouble(reader);
+                    break;
+                case "regularMarketPreviousClose":
+                    previousClose = nextDouble(reader);
+                    break;
+                case "regularMarketTime":
+                    if (reader.peek() == JsonToken.NUMBER) {
+                        marketTime = reader.nextLong();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (symbol == null || Double.isNaN(price) || Double.isNaN(previousClose)) {
+            return null;
+        }
+        return new Quote(symbol, price, previousClose,
+                tradingDayFormat.format(new Date(marketTime * 1000)), now);
+    }
+
+    // Yahoo v8 chart. Keeps the non-null closes whose timestamp falls inside [startTime, endTime];
+    // a range with no trades gives an empty series.
+    public static PriceSeries readYahooChart(Reader in, long startTime, long endTime) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        long[] timestamps = null;
+        float[] closes = null;
+        boolean hasResult = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("chart") || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("result") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginArray();
+                if (reader.hasNext()) {
+                    hasResult = true;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        if (name.equals("timestamp") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                            timestamps = readLongArray(reader, 1000);
+                        } else if (name.equals("indicators") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            closes = readCloses(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                // Only the first result is used
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+
+        if (!hasResult) {
+            throw new IOException("No data in response");
+        }
+        if (timestamps == null && closes != null && closes.length == 0) {
+            // A range with no trades yet: the result carries an empty quote and no timestamps
+            return new PriceSeries(new long[0], new float[0], 0);
+        }
+        if (timestamps == null || closes == null) {
+            throw new IOException("No quote data");
+        }
+
+        // Compact in place: drop missing closes and points outside the requested range
+        int count = Math.min(timestamps.length, closes.length);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            long timestamp = timestamps[i];
+            float close = closes[i];
+            if (Float.isNaN(close) || timestamp < startTime || timestamp > endTime) {
+                continue;
+            }
+            timestamps[size] = timestamp;
+            closes[size] = close;
+            size++;
+        }
+        return new PriceSeries(timestamps, closes, size);
+    }
+
+    // Streaming trade message: {"type":"trade","data":[{"s":"AAPL","p":187.1,"v":100,"t":1700000000000}]}.
+    // Other message types (e.g. {"type":"ping"}) and trades without a symbol or price yield nothing.
+    public static List<Tick> readTrades(Reader in) throws IOException {
+        List<Tick> ticks = new ArrayList<>();
+        JsonReader reader = new JsonReader(in);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("data") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String symbol = null;
+                double price = Double.NaN;
+                double volume = 0;
+                long timestamp = 0;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "s":
+                            symbol = reader.nextString();
+                            break;
+                        case "p":
+                            price = nextDouble(reader);
+                            break;
+                        case "v":
+                            double value = nextDouble(reader);
+                            volume = Double.isNaN(value) ? 0 : value;
+                            break;
+                        case "t":
+                            timestamp = reader.nextLong();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+
+                if (symbol != null && !Double.isNaN(price)) {
+                    ticks.add(new Tick(symbol, price, volume, timestamp));
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return ticks;
+    }
+
+    // indicators.quote[0].close; nulls (no trade in that interval) become NaN
+    private static float[] readCloses(JsonReader reader) throws IOException {
+        float[] closes = new float[0];
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("quote") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            if (reader.hasNext()) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!reader.nextName().equals("close") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    closes = readFloatArray(reader);
+                }
+                reader.endObject();
+            }
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return closes;
+    }
+
+    private static long[] readLongArray(JsonReader reader, long multiplier) throws IOException {
+        long[] values = new long[256];
+        int count = 0;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = reader.nextLong() * multiplier;
+        }
+        reader.endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    private static float[] readFloatArray(JsonReader reader) throws IOException {
+        float[] values = new float[256];
+        int count = 0;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = (float) nextDouble(reader);
+        }
+        reader.endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    // Numbers may arrive as JSON numbers, numeric strings (Alpha Vantage) or null
+    private static double nextDouble(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return Double.NaN;
+        }
+        try {
+            return reader.nextDouble();
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // Compact cache form of a series: {"t":[epoch millis...],"c":[closes...]}
+    public static void writeSeries(Writer out, PriceSeries series) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("t").beginArray();
+        for (int i = 0; i < series.size(); i++) {
+            writer.value(series.getTimestamp(i));
+        }
+        writer.endArray();
+        writer.name("c").beginArray();
+        for (int i = 0; i < series.size(); i++) {
+            writer.value(series.getClose(i));
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+    }
+
+    // Returns null for anything that is not in the writeSeries format, e.g. older cache entries
+    public static PriceSeries readSeries(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        long[] timestamps = null;
+        float[] closes = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("t") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                timestamps = readLongArray(reader, 1);
+            } else if (name.equals("c") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                closes = readFloatArray(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (timestamps == null || closes == null || closes.length != timestamps.length) {
+            return null;
+        }
+        return new PriceSeries(timestamps, closes, timestamps.length);
+    }
+}
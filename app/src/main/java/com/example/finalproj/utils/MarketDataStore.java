@@ -0,0 +1,562 @@
+package com.example.finalproj.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.example.finalproj.model.PriceSeries;
+import com.example.finalproj.model.Quote;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Local market data cache. Quotes are one row per symbol. Candles live in one CandleFile per
+// (symbol, interval) under the cache directory, so timespans with the same interval (3M and 1Y
+// are both daily) share them and a chart is read straight out of a memory mapping. A series row
+// records which window of candles makes up the chart for a timespan and when it was fetched.
+// Reads are counted per quote and per candle file so the store can be trimmed to a CacheBudget;
+// the counts are kept in memory and written in batches rather than on every read.
+public class MarketDataStore extends SQLiteOpenHelper {
+    private static final String TAG = "MarketDataStore";
+    private static final String DATABASE_NAME = "market_data.db";
+    // 2: candles moved from a table into CandleFiles
+    // 3: usage table for budget eviction
+    private static final int DATABASE_VERSION = 3;
+    private static final String CANDLE_DIR = "candles";
+    // Estimated size of a quote row on disk, for the budget
+    private static final long QUOTE_ROW_BYTES = 64;
+    // Pending reads are written once this many entries have been read, or this long after the
+    // last write, whichever comes first; trimming and invalidation write them first regardless
+    private static final int ACCESS_FLUSH_ENTRIES = 64;
+    private static final long ACCESS_FLUSH_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static MarketDataStore instance;
+
+    // The candle window saved as the chart for one timespan
+    public static final class SeriesWindow {
+        public final String interval;
+        public final long startTime;
+        public final long endTime;
+        public final long fetchedAt;
+
+        SeriesWindow(String interval, long startTime, long endTime, long fetchedAt) {
+            this.interval = interval;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    // What trimToBudget removed, so callers can drop it from their own indexes
+    public static final class Eviction {
+        public final List<String> quoteSymbols = new ArrayList<>();
+        // symbol + "_" + timespan, as in getSeriesKeys
+        public final List<String> seriesKeys = new ArrayList<>();
+        public long freedBytes;
+    }
+
+    // Reads not yet written to the usage table
+    private static final class PendingAccess {
+        final String symbol;
+        final String interval;
+        long lastAccess;
+        int hits;
+
+        PendingAccess(String symbol, String interval) {
+            this.symbol = symbol;
+            this.interval = interval;
+        }
+    }
+
+    private final File candleDir;
+    // Keyed by symbol + "\n" + interval; guarded by itself
+    private final Map<String, PendingAccess> pendingAccess = new HashMap<>();
+    private long lastAccessFlush = System.currentTimeMillis();
+
+    public MarketDataStore(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+        candleDir = new File(context.getCacheDir(), CANDLE_DIR);
+    }
+
+    public static synchronized MarketDataStore get(Context context) {
+        if (instance == null) {
+            instance = new MarketDataStore(context);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE quotes ("
+                + "symbol TEXT PRIMARY KEY, "
+                + "price REAL NOT NULL, "
+                + "previous_close REAL NOT NULL, "
+                + "trading_day TEXT NOT NULL, "
+                + "fetched_at INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE series ("
+                + "symbol TEXT NOT NULL, "
+                + "timespan TEXT NOT NULL, "
+                + "interval TEXT NOT NULL, "
+                + "start_time INTEGER NOT NULL, "
+                + "end_time INTEGER NOT NULL, "
+                + "fetched_at INTEGER NOT NULL, "
+                + "PRIMARY KEY (symbol, timespan))");
+        createUsageTable(db);
+    }
+
+    // Reads per quote (interval '') and per candle file, since they were stored
+    private static void createUsageTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE usage ("
+                + "symbol TEXT NOT NULL, "
+                + "interval TEXT NOT NULL, "
+                + "last_access INTEGER NOT NULL, "
+                + "hits INTEGER NOT NULL, "
+                + "PRIMARY KEY (symbol, interval))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // The candles are not carried over; their charts will be fetched again
+            db.execSQL("DROP TABLE IF EXISTS candles");
+            db.execSQL("DELETE FROM series");
+        }
+        if (oldVersion < 3) {
+            createUsageTable(db);
+        }
+    }
+
+    public void putQuote(Quote quote) {
+        ContentValues values = new ContentValues();
+        values.put("symbol", quote.getSymbol());
+        values.put("price", quote.getPrice());
+        values.put("previous_close", quote.getPreviousClose());
+        values.put("trading_day", quote.getLatestTradingDay());
+        values.put("fetched_at", quote.getFetchedAt());
+        getWritableDatabase().insertWithOnConflict("quotes", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public Quote getQuote(String symbol) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT price, previous_close, trading_day, fetched_at FROM quotes WHERE symbol = ?",
+                new String[]{symbol})) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            touch(symbol, "");
+            return new Quote(symbol, cursor.getDouble(0), cursor.getDouble(1), cursor.getString(2),
+                    cursor.getLong(3));
+        }
+    }
+
+    // Replaces the candles inside [startTime, endTime] with the series and records it as the
+    // chart for timespan. Candles are replaced rather than merged because the newest bar of an
+    // open session is re-stamped by the provider as it updates. Candles older than every chart
+    // that uses the file are dropped.
+    public synchronized void putSeries(String symbol, String timespan, String interval, long startTime,
+                                       long endTime, PriceSeries series, long fetchedAt) throws IOException {
+        ContentValues values = new ContentValues();
+        values.put("symbol", symbol);
+        values.put("timespan", timespan);
+        values.put("interval", interval);
+        values.put("start_time", startTime);
+        values.put("end_time", endTime);
+        values.put("fetched_at", fetchedAt);
+        SQLiteDatabase db = getWritableDatabase();
+        db.insertWithOnConflict("series", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+        long keepFrom = startTime;
+        try (Cursor cursor = db.rawQuery("SELECT MIN(start_time) FROM series WHERE symbol = ? AND interval = ?",
+                new String[]{symbol, interval})) {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                keepFrom = Math.min(keepFrom, cursor.getLong(0));
+            }
+        }
+
+        File file = getCandleFile(symbol, interval);
+        PriceSeries existing = null;
+        try {
+            existing = CandleFile.read(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Replacing unreadable " + file.getName() + ": " + e.getMessage());
+        }
+        CandleFile.write(file, existing != null
+                ? splice(existing, keepFrom, startTime, endTime, series)
+                : series);
+    }
+
+    // existing from keepFrom on, with its candles inside [startTime, endTime] swapped for those
+    // of replacement
+    private static PriceSeries splice(PriceSeries existing, long keepFrom, long startTime, long endTime,
+                                      PriceSeries replacement) {
+        int capacity = existing.size() + replacement.size();
+        long[] timestamps = new long[capacity];
+        float[] closes = new float[capacity];
+        int size = 0;
+        int i = 0;
+        while (i < existing.size() && existing.getTimestamp(i) < keepFrom) {
+            i++;
+        }
+        while (i < existing.size() && existing.getTimestamp(i) < startTime) {
+            timestamps[size] = existing.getTimestamp(i);
+            closes[size++] = existing.getClose(i++);
+        }
+        for (int j = 0; j < replacement.size(); j++) {
+            timestamps[size] = replacement.getTimestamp(j);
+            closes[size++] = replacement.getClose(j);
+        }
+        while (i < existing.size() && existing.getTimestamp(i) <= endTime) {
+            i++;
+        }
+        while (i < existing.size()) {
+            timestamps[size] = existing.getTimestamp(i);
+            closes[size++] = existing.getClose(i++);
+        }
+        return new PriceSeries(timestamps, closes, size);
+    }
+
+    // Every stored quote, for preloading; does not count as a read
+    public List<Quote> getQuotes() {
+        List<Quote> quotes = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT symbol, price, previous_close, trading_day, fetched_at FROM quotes", null)) {
+            while (cursor.moveToNext()) {
+                quotes.add(new Quote(cursor.getString(0), cursor.getDouble(1), cursor.getDouble(2),
+                        cursor.getString(3), cursor.getLong(4)));
+            }
+        }
+        return quotes;
+    }
+
+    // symbol + "_" + timespan of every saved chart
+    public List<String> getSeriesKeys() {
+        List<String> keys = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT symbol, timespan FROM series", null)) {
+            while (cursor.moveToNext()) {
+                keys.add(cursor.getString(0) + "_" + cursor.getString(1));
+            }
+        }
+        return keys;
+    }
+
+    // The chart last saved for timespan, or null if there is none
+    public PriceSeries getSeries(String symbol, String timespan) {
+        SeriesWindow window = getSeriesWindow(symbol, timespan);
+        if (window == null) {
+            return null;
+        }
+        touch(symbol, window.interval);
+        return getCandles(symbol, window.interval, window.startTime, window.endTime);
+    }
+
+    private void touch(String symbol, String interval) {
+        long now = System.currentTimeMillis();
+        boolean due;
+        synchronized (pendingAccess) {
+            PendingAccess access = pendingAccess.computeIfAbsent(symbol + "\n" + interval,
+                    key -> new PendingAccess(symbol, interval));
+            access.lastAccess = now;
+            access.hits++;
+            due = pendingAccess.size() >= ACCESS_FLUSH_ENTRIES || now - lastAccessFlush >= ACCESS_FLUSH_INTERVAL;
+        }
+        if (due) {
+            flushAccess();
+        }
+    }
+
+    // Writes the reads counted since the last flush in one transaction
+    private void flushAccess() {
+        List<PendingAccess> batch;
+        synchronized (pendingAccess) {
+            lastAccessFlush = System.currentTimeMillis();
+            if (pendingAccess.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pendingAccess.values());
+            pendingAccess.clear();
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (PendingAccess access : batch) {
+                db.execSQL("INSERT OR IGNORE INTO usage (symbol, interval, last_access, hits) VALUES (?, ?, 0, 0)",
+                        new String[]{access.symbol, access.interval});
+                db.execSQL("UPDATE usage SET last_access = MAX(last_access, ?), hits = hits + ? "
+                                + "WHERE symbol = ? AND interval = ?",
+                        new Object[]{access.lastAccess, access.hits, access.symbol, access.interval});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Forgets reads of entries that are being deleted, so a later flush does not bring their
+    // usage rows back
+    private void discardAccess(Predicate<PendingAccess> deleted) {
+        synchronized (pendingAccess) {
+            pendingAccess.values().removeIf(deleted);
+        }
+    }
+
+    public SeriesWindow getSeriesWindow(String symbol, String timespan) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT interval, start_time, end_time, fetched_at FROM series WHERE symbol = ? AND timespan = ?",
+                new String[]{symbol, timespan})) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new SeriesWindow(cursor.getString(0), cursor.getLong(1), cursor.getLong(2), cursor.getLong(3));
+        }
+    }
+
+    // When the chart for timespan was last fetched, 0 if never
+    public long getSeriesFetchedAt(String symbol, String timespan) {
+        SeriesWindow window = getSeriesWindow(symbol, timespan);
+        return window != null ? window.fetchedAt : 0;
+    }
+
+    // Timestamp of the newest stored candle for (symbol, interval), or -1 if there are none
+    public long getLastCandleTime(String symbol, String interval) {
+        File file = getCandleFile(symbol, interval);
+        try {
+            return CandleFile.readLastTimestamp(file);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading " + file.getName() + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // Candles with startTime <= time <= endTime, oldest first; null if none are stored
+    public PriceSeries getCandles(String symbol, String interval, long startTime, long endTime) {
+        File file = getCandleFile(symbol, interval);
+        try {
+            return CandleFile.read(file, startTime, endTime);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private File getCandleFile(String symbol, String interval) {
+        return new File(candleDir, symbol.replaceAll("[^A-Za-z0-9.\\-]", "_") + "_" + interval + ".candles");
+    }
+
+    // Every quote and candle file with its size and usage, for CacheBudget. Saving counts as an
+    // access, so a fresh fetch is not the first thing evicted.
+    public List<CacheBudget.Entry> getBudgetEntries() {
+        List<CacheBudget.Entry> entries = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT q.symbol, MAX(COALESCE(u.last_access, 0), q.fetched_at), "
+                + "COALESCE(u.hits, 0) FROM quotes q "
+                + "LEFT JOIN usage u ON u.symbol = q.symbol AND u.interval = ''", null)) {
+            while (cursor.moveToNext()) {
+                entries.add(new CacheBudget.Entry(cursor.getString(0), "", QUOTE_ROW_BYTES,
+                        cursor.getLong(1), cursor.getLong(2)));
+            }
+        }
+        try (Cursor cursor = db.rawQuery("SELECT s.symbol, s.interval, "
+                + "MAX(COALESCE(MAX(u.last_access), 0), MAX(s.fetched_at)), COALESCE(MAX(u.hits), 0) FROM series s "
+                + "LEFT JOIN usage u ON u.symbol = s.symbol AND u.interval = s.interval "
+                + "GROUP BY s.symbol, s.interval", null)) {
+            while (cursor.moveToNext()) {
+                String symbol = cursor.getString(0);
+                String interval = cursor.getString(1);
+                entries.add(new CacheBudget.Entry(symbol, interval, getCandleFile(symbol, interval).length(),
+                        cursor.getLong(2), cursor.getLong(3)));
+            }
+        }
+        return entries;
+    }
+
+    // Evicts what the budget chooses, never touching pinned symbols. Pending reads are written
+    // first so the budget orders entries by their latest use.
+    public synchronized Eviction trimToBudget(CacheBudget budget, Set<String> pinned) {
+        flushAccess();
+        Eviction eviction = new Eviction();
+        List<CacheBudget.Entry> victims = budget.selectVictims(getBudgetEntries(), pinned);
+        if (victims.isEmpty()) {
+            return eviction;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (CacheBudget.Entry victim : victims) {
+                if (victim.isQuote()) {
+                    db.delete("quotes", "symbol = ?", new String[]{victim.symbol});
+                    db.delete("usage", "symbol = ? AND interval = ''", new String[]{victim.symbol});
+                    eviction.quoteSymbols.add(victim.symbol);
+                } else {
+                    String[] key = {victim.symbol, victim.interval};
+                    try (Cursor cursor = db.rawQuery("SELECT timespan FROM series WHERE symbol = ? AND interval = ?",
+                            key)) {
+                        while (cursor.moveToNext()) {
+                            eviction.seriesKeys.add(victim.symbol + "_" + cursor.getString(0));
+                        }
+                    }
+                    db.delete("series", "symbol = ? AND interval = ?", key);
+                    dropCandles(db, victim.symbol, victim.interval);
+                }
+                eviction.freedBytes += victim.bytes;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "Evicted " + victims.size() + " entries (" + eviction.freedBytes + " bytes) over the "
+                + budget.getMaxBytes() + " byte " + budget.getPolicy() + " budget");
+        return eviction;
+    }
+
+    // Drops the quote and every chart of symbol
+    public synchronized void invalidateSymbol(String symbol) {
+        discardAccess(access -> access.symbol.equals(symbol));
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete("quotes", "symbol = ?", new String[]{symbol});
+            for (String interval : getIntervals(db, "symbol = ?", new String[]{symbol})) {
+                dropCandles(db, symbol, interval);
+            }
+            db.delete("series", "symbol = ?", new String[]{symbol});
+            db.delete("usage", "symbol = ?", new String[]{symbol});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Drops the chart saved for timespan; its candles go too unless another timespan uses them
+    public synchronized void invalidateSeries(String symbol, String timespan) {
+        SeriesWindow window = getSeriesWindow(symbol, timespan);
+        if (window == null) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete("series", "symbol = ? AND timespan = ?", new String[]{symbol, timespan});
+            dropCandlesIfUnused(db, symbol, window.interval);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Drops quotes and charts fetched before cutoff
+    public synchronized void invalidateOlderThan(long cutoff) {
+        flushAccess();
+        String[] args = {String.valueOf(cutoff)};
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM usage WHERE interval = '' AND symbol IN "
+                    + "(SELECT symbol FROM quotes WHERE fetched_at < ?)", args);
+            db.delete("quotes", "fetched_at < ?", args);
+            List<String[]> stale = new ArrayList<>();
+            try (Cursor cursor = db.rawQuery("SELECT DISTINCT symbol, interval FROM series WHERE fetched_at < ?",
+                    args)) {
+                while (cursor.moveToNext()) {
+                    stale.add(new String[]{cursor.getString(0), cursor.getString(1)});
+                }
+            }
+            db.delete("series", "fetched_at < ?", args);
+            for (String[] key : stale) {
+                dropCandlesIfUnused(db, key[0], key[1]);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static List<String> getIntervals(SQLiteDatabase db, String where, String[] args) {
+        List<String> intervals = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT DISTINCT interval FROM series WHERE " + where, args)) {
+            while (cursor.moveToNext()) {
+                intervals.add(cursor.getString(0));
+            }
+        }
+        return intervals;
+    }
+
+    private void dropCandlesIfUnused(SQLiteDatabase db, String symbol, String interval) {
+        try (Cursor cursor = db.rawQuery("SELECT 1 FROM series WHERE symbol = ? AND interval = ? LIMIT 1",
+                new String[]{symbol, interval})) {
+            if (cursor.moveToFirst()) {
+                return;
+            }
+        }
+        dropCandles(db, symbol, interval);
+    }
+
+    private void dropCandles(SQLiteDatabase db, String symbol, String interval) {
+        discardAccess(access -> access.symbol.equals(symbol) && access.interval.equals(interval));
+        db.delete("usage", "symbol = ? AND interval = ?", new String[]{symbol, interval});
+        File file = getCandleFile(symbol, interval);
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file.getName());
+        }
+    }
+
+    public synchronized void clear() {
+        discardAccess(access -> true);
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete("quotes", null, null);
+            db.delete("series", null, null);
+            db.delete("usage", null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        File[] files = candleDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    // Moves quotes and charts cached in SharedPreferences into the store and removes every cache
+    // key from prefs, including entries that could not be migrated.
+    public void migrateFrom(SharedPreferences prefs, Function<String, String> intervalForTimespan) {
+        LegacyCacheMigration migration = LegacyCacheMigration.read(prefs.getAll());
+        if (migration.keysToRemove.isEmpty()) return;
+
+        for (Quote quote : migration.quotes) {
+            putQuote(quote);
+        }
+        for (LegacyCacheMigration.LegacySeries legacy : migration.series) {
+            PriceSeries series = legacy.series;
+            try {
+                putSeries(legacy.symbol, legacy.timespan, intervalForTimespan.apply(legacy.timespan),
+                        series.getTimestamp(0), series.getTimestamp(series.size() - 1), series,
+                        legacy.fetchedAt);
+            } catch (IOException e) {
+                Log.w(TAG, "Dropping cached chart " + legacy.symbol + " " + legacy.timespan + ": "
+                        + e.getMessage());
+            }
+        }
+
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : migration.keysToRemove) {
+            editor.remove(key);
+        }
+        editor.apply();
+        Log.d(TAG, "Migrated " + migration.keysToRemove.size() + " cache entries out of SharedPreferences");
+    }
+}
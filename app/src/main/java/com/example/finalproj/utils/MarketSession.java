@@ -0,0 +1,237 @@
+package com.example.finalproj.utils;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+// US equity trading calendar: regular sessions 9:30-16:00 New York time, weekends, NYSE
+// holidays and the 13:00 early closes. Used to decide how long market data stays fresh:
+// while a session is open prices move, so data gets a short TTL; once the session has closed
+// and settled, nothing changes until the next open.
+public class MarketSession {
+    private static final int OPEN_MINUTE = 9 * 60 + 30;
+    private static final int CLOSE_MINUTE = 16 * 60;
+    private static final int EARLY_CLOSE_MINUTE = 13 * 60;
+
+    // Closing prices keep being corrected for a few minutes after the bell
+    private static final long SETTLE_MILLIS = 15 * 60 * 1000;
+
+    private final TimeZone timeZone;
+    private final Map<Integer, Set<Integer>> holidaysByYear = new HashMap<>();
+    private final Map<Integer, Set<Integer>> earlyClosesByYear = new HashMap<>();
+
+    public MarketSession() {
+        this(TimeZone.getTimeZone("America/New_York"));
+    }
+
+    public MarketSession(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    public boolean isOpen(long now) {
+        Calendar cal = calendarAt(now);
+        if (!isTradingDay(cal)) return false;
+        int minute = cal.get(Calendar.HOUR_OF_DAY) * 60 + cal.get(Calendar.MINUTE);
+        return minute >= OPEN_MINUTE && minute < getCloseMinute(cal);
+    }
+
+    // When data fetched at fetchedAt stops being fresh. Inside a session (and while the close
+    // settles) that is intradayTtl later, never past the settle point; otherwise it is the next open.
+    public long getExpiresAt(long fetchedAt, long intradayTtl) {
+        long sessionEnd = getLastClose(fetchedAt) + SETTLE_MILLIS;
+        if (isOpen(fetchedAt)) {
+            long settledAt = getSessionClose(fetchedAt) + SETTLE_MILLIS;
+            return Math.min(fetchedAt + intradayTtl, settledAt);
+        }
+        if (fetchedAt < sessionEnd) {
+            return Math.min(fetchedAt + intradayTtl, sessionEnd);
+        }
+        return getNextOpen(fetchedAt);
+    }
+
+    public boolean isFresh(long fetchedAt, long intradayTtl, long now) {
+        return fetchedAt <= now && now < getExpiresAt(fetchedAt, intradayTtl);
+    }
+
+    // The first session open strictly after now
+    public long getNextOpen(long now) {
+        Calendar cal = calendarAt(now);
+        for (int day = 0; day < 14; day++) {
+            if (isTradingDay(cal)) {
+                long open = atMinute(cal, OPEN_MINUTE);
+                if (open > now) return open;
+            }
+            cal.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        throw new IllegalStateException("No trading day within two weeks of " + now);
+    }
+
+    // The most recent session close at or before now
+    public long getLastClose(long now) {
+        Calendar cal = calendarAt(now);
+        for (int day = 0; day < 14; day++) {
+            if (isTradingDay(cal)) {
+                long close = atMinute(cal, getCloseMinute(cal));
+                if (close <= now) return close;
+            }
+            cal.add(Calendar.DAY_OF_YEAR, -1);
+        }
+        throw new IllegalStateException("No trading day within two weeks of " + now);
+    }
+
+    // Open of the session that is running at now, or of the last one if the market is closed
+    public long getSessionOpen(long now) {
+        if (isOpen(now)) {
+            return atMinute(calendarAt(now), OPEN_MINUTE);
+        }
+        return atMinute(calendarAt(getLastClose(now)), OPEN_MINUTE);
+    }
+
+    private long getSessionClose(long now) {
+        Calendar cal = calendarAt(now);
+        return atMinute(cal, getCloseMinute(cal));
+    }
+
+    public boolean isTradingDay(Calendar cal) {
+        int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
+        if (dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY) return false;
+        return !getHolidays(cal.get(Calendar.YEAR)).contains(dateKey(cal));
+    }
+
+    private int getCloseMinute(Calendar cal) {
+        return getEarlyCloses(cal.get(Calendar.YEAR)).contains(dateKey(cal)) ? EARLY_CLOSE_MINUTE : CLOSE_MINUTE;
+    }
+
+    private synchronized Set<Integer> getHolidays(int year) {
+        Set<Integer> holidays = holidaysByYear.get(year);
+        if (holidays == null) {
+            holidays = new HashSet<>();
+            // New Year's Day is not moved back into the previous year when it falls on a Saturday
+            Calendar newYear = date(year, Calendar.JANUARY, 1);
+            if (newYear.get(Calendar.DAY_OF_WEEK) == Calendar.SUNDAY) {
+                newYear.add(Calendar.DAY_OF_YEAR, 1);
+            }
+            if (newYear.get(Calendar.DAY_OF_WEEK) != Calendar.SATURDAY) {
+                holidays.add(dateKey(newYear));
+            }
+            holidays.add(dateKey(nthWeekday(year, Calendar.JANUARY, Calendar.MONDAY, 3)));
+            holidays.add(dateKey(nthWeekday(year, Calendar.FEBRUARY, Calendar.MONDAY, 3)));
+            Calendar goodFriday = easterSunday(year);
+            goodFriday.add(Calendar.DAY_OF_YEAR, -2);
+            holidays.add(dateKey(goodFriday));
+            holidays.add(dateKey(lastWeekday(year, Calendar.MAY, Calendar.MONDAY)));
+            if (year >= 2022) {
+                holidays.add(dateKey(observed(date(year, Calendar.JUNE, 19))));
+            }
+            holidays.add(dateKey(observed(date(year, Calendar.JULY, 4))));
+            holidays.add(dateKey(nthWeekday(year, Calendar.SEPTEMBER, Calendar.MONDAY, 1)));
+            holidays.add(dateKey(nthWeekday(year, Calendar.NOVEMBER, Calendar.THURSDAY, 4)));
+            holidays.add(dateKey(observed(date(year, Calendar.DECEMBER, 25))));
+            holidaysByYear.put(year, holidays);
+        }
+        return holidays;
+    }
+
+    private synchronized Set<Integer> getEarlyCloses(int year) {
+        Set<Integer> earlyCloses = earlyClosesByYear.get(year);
+        if (earlyCloses == null) {
+            earlyCloses = new HashSet<>();
+            Calendar julyThird = date(year, Calendar.JULY, 3);
+            if (isWeekday(julyThird) && isWeekday(date(year, Calendar.JULY, 4))) {
+                earlyCloses.add(dateKey(julyThird));
+            }
+            Calendar dayAfterThanksgiving = nthWeekday(year, Calendar.NOVEMBER, Calendar.THURSDAY, 4);
+            dayAfterThanksgiving.add(Calendar.DAY_OF_YEAR, 1);
+            earlyCloses.add(dateKey(dayAfterThanksgiving));
+            Calendar christmasEve = date(year, Calendar.DECEMBER, 24);
+            if (isWeekday(christmasEve)) {
+                earlyCloses.add(dateKey(christmasEve));
+            }
+            earlyClosesByYear.put(year, earlyCloses);
+        }
+        return earlyCloses;
+    }
+
+    // Saturday holidays are observed on Friday, Sunday ones on Monday
+    private static Calendar observed(Calendar cal) {
+        int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
+        if (dayOfWeek == Calendar.SATURDAY) {
+            cal.add(Calendar.DAY_OF_YEAR, -1);
+        } else if (dayOfWeek == Calendar.SUNDAY) {
+            cal.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        return cal;
+    }
+
+    private static boolean isWeekday(Calendar cal) {
+        int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
+        return dayOfWeek != Calendar.SATURDAY && dayOfWeek != Calendar.SUNDAY;
+    }
+
+    private static Calendar nthWeekday(int year, int month, int dayOfWeek, int n) {
+        Calendar cal = date(year, month, 1);
+        while (cal.get(Calendar.DAY_OF_WEEK) != dayOfWeek) {
+            cal.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        cal.add(Calendar.DAY_OF_YEAR, 7 * (n - 1));
+        return cal;
+    }
+
+    private static Calendar lastWeekday(int year, int month, int dayOfWeek) {
+        Calendar cal = date(year, month, 1);
+        cal.set(Calendar.DAY_OF_MONTH, cal.getActualMaximum(Calendar.DAY_OF_MONTH));
+        while (cal.get(Calendar.DAY_OF_WEEK) != dayOfWeek) {
+            cal.add(Calendar.DAY_OF_YEAR, -1);
+        }
+        return cal;
+    }
+
+    // Anonymous Gregorian algorithm
+    private static Calendar easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = ((h + l - 7 * m + 114) % 31) + 1;
+        return date(year, month - 1, day);
+    }
+
+    // Holiday dates only need the calendar fields, so a zone-less calendar is fine here
+    private static Calendar date(int year, int month, int day) {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.clear();
+        cal.set(year, month, day);
+        return cal;
+    }
+
+    private static int dateKey(Calendar cal) {
+        return cal.get(Calendar.YEAR) * 10000 + (cal.get(Calendar.MONTH) + 1) * 100 + cal.get(Calendar.DAY_OF_MONTH);
+    }
+
+    private Calendar calendarAt(long time) {
+        Calendar cal = Calendar.getInstance(timeZone);
+        cal.setTimeInMillis(time);
+        return cal;
+    }
+
+    private static long atMinute(Calendar day, int minuteOfDay) {
+        Calendar cal = (Calendar) day.clone();
+        cal.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        cal.set(Calendar.MINUTE, minuteOfDay % 60);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+}
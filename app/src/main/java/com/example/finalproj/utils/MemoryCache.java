@@ -0,0 +1,140 @@
+package com.example.finalproj.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+// Size-bounded in-memory cache in front of the persistent store. Entries are charged an
+// estimated size in bytes and the least recently used ones are evicted once the total goes over
+// the budget. Hit, miss and eviction counts are kept for tuning the budget.
+public class MemoryCache<K, V> {
+
+    public interface Sizer<K, V> {
+        long sizeOf(K key, V value);
+    }
+
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int entries;
+        public final long bytes;
+        public final long maxBytes;
+
+        Stats(long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + " misses=" + misses + " evictions=" + evictions
+                    + " entries=" + entries + " bytes=" + bytes + "/" + maxBytes;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long size;
+
+        Entry(V value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    private final long maxBytes;
+    private final Sizer<K, V> sizer;
+    // Access order: iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public MemoryCache(long maxBytes, Sizer<K, V> sizer) {
+        this.maxBytes = maxBytes;
+        this.sizer = sizer;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    // Like get, but not counted as a hit or miss
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    // Values bigger than the whole budget are not cached
+    public synchronized void put(K key, V value) {
+        long size = sizer.sizeOf(key, value);
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            bytes -= previous.size;
+        }
+        if (size > maxBytes) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, size));
+        bytes += size;
+        trimTo(maxBytes);
+    }
+
+    public synchronized void remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.size;
+        }
+    }
+
+    // Removes the entries the predicate matches; an invalidation, so not counted as evictions
+    public synchronized void removeIf(BiPredicate<K, V> predicate) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (predicate.test(entry.getKey(), entry.getValue().value)) {
+                bytes -= entry.getValue().size;
+                iterator.remove();
+            }
+        }
+    }
+
+    // Evicts least recently used entries until at most targetBytes are held
+    public synchronized void trimToSize(long targetBytes) {
+        trimTo(Math.min(targetBytes, maxBytes));
+    }
+
+    public synchronized void evictAll() {
+        trimTo(-1);
+    }
+
+    private void trimTo(long targetBytes) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (bytes > targetBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().size;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size(), bytes, maxBytes);
+    }
+}
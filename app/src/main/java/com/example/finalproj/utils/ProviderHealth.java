@@ -0,0 +1,56 @@
+package com.example.finalproj.utils;
+
+import java.util.Arrays;
+
+// Rolling health of one quote provider: an exponentially weighted success rate plus the
+// latencies of its most recent answers.
+public class ProviderHealth {
+    private static final int MAX_SAMPLES = 64;
+    private static final double SUCCESS_WEIGHT = 0.2;
+
+    private final long[] latencies = new long[MAX_SAMPLES];
+    private int sampleCount = 0;
+    private int nextSample = 0;
+    private double successRate = 1.0;
+
+    public synchronized void recordSuccess(long latencyMillis) {
+        addSample(latencyMillis);
+        successRate += SUCCESS_WEIGHT * (1.0 - successRate);
+    }
+
+    public synchronized void recordFailure() {
+        successRate -= SUCCESS_WEIGHT * successRate;
+    }
+
+    // A request that lost a hedge race was still running after elapsedMillis. Counting that
+    // lower bound keeps slow providers from looking fast just because they never finish.
+    public synchronized void recordAbandoned(long elapsedMillis) {
+        addSample(elapsedMillis);
+    }
+
+    public synchronized double getSuccessRate() {
+        return successRate;
+    }
+
+    public synchronized long getLatencyPercentile(double percentile, long defaultMillis) {
+        if (sampleCount == 0) {
+            return defaultMillis;
+        }
+        long[] sorted = Arrays.copyOf(latencies, sampleCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sampleCount) - 1;
+        return sorted[Math.max(0, Math.min(sampleCount - 1, index))];
+    }
+
+    // Higher is better: success rate discounted by median latency in seconds
+    public synchronized double getScore() {
+        long median = getLatencyPercentile(50, 0);
+        return successRate * 1000.0 / (1000.0 + median);
+    }
+
+    private void addSample(long latencyMillis) {
+        latencies[nextSample] = Math.max(0, latencyMillis);
+        nextSample = (nextSample + 1) % MAX_SAMPLES;
+        sampleCount = Math.min(sampleCount + 1, MAX_SAMPLES);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.finalproj.utils;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Persistent record of today's Alpha Vantage spend. The total lives in the rate limiter; the
+// ledger adds which symbols it went on and keeps both across restarts until the daily reset.
+public class QuotaLedger {
+    private static final String DAY_KEY = "av_quota_day";
+    private static final String USED_KEY = "av_quota_used";
+    private static final String SPENT_KEY = "av_quota_spent";
+
+    private final SlidingWindowLimiter limiter;
+    private final Map<String, Integer> spentToday = new LinkedHashMap<>();
+    private long ledgerDay = 0;
+    private boolean restored = false;
+
+    public QuotaLedger(SlidingWindowLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public synchronized void restore(SharedPreferences prefs, long now) {
+        if (restored) return;
+        restored = true;
+
+        long savedDay = prefs.getLong(DAY_KEY, 0);
+        limiter.restore(savedDay, prefs.getInt(USED_KEY, 0), now);
+        if (savedDay != limiter.getDayStart()) return;
+
+        ledgerDay = savedDay;
+        String spent = prefs.getString(SPENT_KEY, "");
+        for (String entry : spent.split(",")) {
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) continue;
+            try {
+                spentToday.put(entry.substring(0, separator), Integer.parseInt(entry.substring(separator + 1)));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+
+    // Called once a token has been spent on symbol
+    public synchronized void recordSpend(SharedPreferences prefs, String symbol, long now) {
+        rollOver(now);
+        Integer count = spentToday.get(symbol);
+        spentToday.put(symbol, count == null ? 1 : count + 1);
+
+        StringBuilder spent = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : spentToday.entrySet()) {
+            if (spent.length() > 0) spent.append(',');
+            spent.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        prefs.edit()
+                .putLong(DAY_KEY, limiter.getDayStart())
+                .putInt(USED_KEY, limiter.getUsedToday())
+                .putString(SPENT_KEY, spent.toString())
+                .apply();
+    }
+
+    public synchronized Map<String, Integer> getSpentToday(long now) {
+        rollOver(now);
+        return new HashMap<>(spentToday);
+    }
+
+    public int getRemainingToday(long now) {
+        return limiter.getRemainingToday(now);
+    }
+
+    private void rollOver(long now) {
+        long day = limiter.getCurrentDayStart(now);
+        if (day != ledgerDay) {
+            ledgerDay = day;
+            spentToday.clear();
+        }
+    }
+}
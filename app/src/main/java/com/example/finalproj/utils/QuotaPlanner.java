@@ -0,0 +1,149 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.Quote;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Decides which symbols are worth one of the scarce daily Alpha Vantage calls. Candidates are
+// scored by staleness x position value x visibility and sent highest first; once the budget
+// runs low, only symbols scoring above a floor are sent and the rest keep their cached quote.
+public class QuotaPlanner {
+    private static final long MAX_STALENESS = TimeUnit.HOURS.toMillis(24);
+    private static final double VISIBLE_WEIGHT = 2.0;
+    private static final int MAX_RECENT_DECISIONS = 50;
+
+    public static class Decision {
+        public final String symbol;
+        public final double score;
+        public final long stalenessMillis;
+        public final double positionValue;
+        public final boolean visible;
+        public final boolean admitted;
+        public final String reason;
+        public final long decidedAt;
+
+        Decision(String symbol, double score, long stalenessMillis, double positionValue,
+                 boolean visible, boolean admitted, String reason, long decidedAt) {
+            this.symbol = symbol;
+            this.score = score;
+            this.stalenessMillis = stalenessMillis;
+            this.positionValue = positionValue;
+            this.visible = visible;
+            this.admitted = admitted;
+            this.reason = reason;
+            this.decidedAt = decidedAt;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US, "%s %s score=%.2f stale=%dm value=%.0f%s (%s)",
+                    admitted ? "SEND" : "DEFER", symbol, score, stalenessMillis / 60000, positionValue,
+                    visible ? " visible" : "", reason);
+        }
+    }
+
+    private final int lowBudget;
+    private final double lowBudgetMinScore;
+    private volatile Map<String, Integer> quantities = new HashMap<>();
+    private volatile Map<String, Double> purchasePrices = new HashMap<>();
+    private final Deque<Decision> recentDecisions = new ArrayDeque<>();
+
+    // Below lowBudget remaining calls, candidates need at least lowBudgetMinScore to be sent
+    public QuotaPlanner(int lowBudget, double lowBudgetMinScore) {
+        this.lowBudget = lowBudget;
+        this.lowBudgetMinScore = lowBudgetMinScore;
+    }
+
+    // Shares held per symbol. A position is valued at the cached quote's price; the purchase
+    // price only stands in until the symbol has a quote.
+    public void setHoldings(Map<String, Integer> quantities, Map<String, Double> purchasePrices) {
+        this.purchasePrices = new HashMap<>(purchasePrices);
+        this.quantities = new HashMap<>(quantities);
+    }
+
+    public double getPositionValue(String symbol, Quote cachedQuote) {
+        Integer quantity = quantities.get(symbol);
+        if (quantity == null) {
+            return 0;
+        }
+        if (cachedQuote != null) {
+            return quantity * cachedQuote.getPrice();
+        }
+        Double purchasePrice = purchasePrices.get(symbol);
+        return purchasePrice != null ? quantity * purchasePrice : 0;
+    }
+
+    // Staleness in hours (capped at a day, never-fetched counts as a day), times
+    // 1 + log10(1 + position value) so holdings dominate without one large position drowning
+    // everything else, times VISIBLE_WEIGHT for symbols on screen.
+    public double score(long stalenessMillis, double positionValue, boolean visible) {
+        double stalenessHours = Math.min(stalenessMillis, MAX_STALENESS) / (double) TimeUnit.HOURS.toMillis(1);
+        double valueWeight = 1 + Math.log10(1 + Math.max(0, positionValue));
+        return stalenessHours * valueWeight * (visible ? VISIBLE_WEIGHT : 1);
+    }
+
+    // cachedQuotes holds the quote each symbol already has; absent means never fetched.
+    // Returns one decision per symbol, admitted ones first in the order they should be sent.
+    public List<Decision> plan(Collection<String> symbols, Map<String, Quote> cachedQuotes, boolean visible,
+                               int remainingToday, long now) {
+        List<Decision> candidates = new ArrayList<>();
+        for (String symbol : symbols) {
+            Quote cached = cachedQuotes.get(symbol);
+            long staleness = cached == null ? MAX_STALENESS : Math.max(0, now - cached.getFetchedAt());
+            double positionValue = getPositionValue(symbol, cached);
+            candidates.add(new Decision(symbol, score(staleness, positionValue, visible), staleness,
+                    positionValue, visible, false, null, now));
+        }
+        candidates.sort((a, b) -> Double.compare(b.score, a.score));
+
+        boolean budgetLow = remainingToday <= lowBudget;
+        int budget = remainingToday;
+        List<Decision> admitted = new ArrayList<>();
+        List<Decision> deferred = new ArrayList<>();
+        for (Decision candidate : candidates) {
+            String reason;
+            boolean admit;
+            if (budget <= 0) {
+                admit = false;
+                reason = "daily budget spent";
+            } else if (budgetLow && candidate.score < lowBudgetMinScore) {
+                admit = false;
+                reason = "budget low (" + remainingToday + " left), score below " + lowBudgetMinScore;
+            } else {
+                admit = true;
+                reason = budgetLow ? "budget low, score high enough" : "budget available";
+                budget--;
+            }
+
+            Decision decision = new Decision(candidate.symbol, candidate.score, candidate.stalenessMillis,
+                    candidate.positionValue, visible, admit, reason, now);
+            (admit ? admitted : deferred).add(decision);
+        }
+
+        List<Decision> decisions = new ArrayList<>(admitted);
+        decisions.addAll(deferred);
+        synchronized (recentDecisions) {
+            for (Decision decision : decisions) {
+                if (recentDecisions.size() == MAX_RECENT_DECISIONS) {
+                    recentDecisions.removeFirst();
+                }
+                recentDecisions.addLast(decision);
+            }
+        }
+        return decisions;
+    }
+
+    // Most recent decisions, oldest first
+    public List<Decision> getRecentDecisions() {
+        synchronized (recentDecisions) {
+            return new ArrayList<>(recentDecisions);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.Quote;
+import com.example.finalproj.model.Tick;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Sits between quote/tick sources and a screen and drops updates that would not change what
+// the screen shows. Each value is compared with the last one this filter let through for the
+// symbol (not the last one seen), so many small moves still add up to a reported change.
+// A move counts only when it is larger than absoluteEpsilon and larger than percentEpsilon
+// percent of the delivered value; set either to 0 to disable that test.
+public class QuoteChangeFilter {
+    // Half a cent: prices are shown with two decimals
+    public static final double DISPLAY_ABSOLUTE_EPSILON = 0.005;
+
+    public enum Field {
+        PRICE,
+        PREVIOUS_CLOSE,
+        TRADING_DAY
+    }
+
+    // What moved for one symbol. Also used as the RecyclerView payload for partial rebinds.
+    public static final class Change {
+        public final String symbol;
+        public final Set<Field> fields;
+        public final double price;
+        public final double previousClose;
+
+        Change(String symbol, Set<Field> fields, double price, double previousClose) {
+            this.symbol = symbol;
+            this.fields = fields;
+            this.price = price;
+            this.previousClose = previousClose;
+        }
+
+        public boolean has(Field field) {
+            return fields.contains(field);
+        }
+
+        @Override
+        public String toString() {
+            return symbol + " " + fields;
+        }
+    }
+
+    private static final class Delivered {
+        double price;
+        double previousClose;
+        String tradingDay;
+    }
+
+    private final double absoluteEpsilon;
+    private final double percentEpsilon;
+    private final Map<String, Delivered> delivered = new HashMap<>();
+    private long acceptedCount = 0;
+    private long suppressedCount = 0;
+
+    public QuoteChangeFilter(double absoluteEpsilon, double percentEpsilon) {
+        this.absoluteEpsilon = absoluteEpsilon;
+        this.percentEpsilon = percentEpsilon;
+    }
+
+    public static QuoteChangeFilter forDisplay() {
+        return new QuoteChangeFilter(DISPLAY_ABSOLUTE_EPSILON, 0);
+    }
+
+    // Null when nothing moved; the first value for a symbol always comes back as a change
+    public Change filter(String symbol, Quote quote) {
+        return filter(symbol, quote.getPrice(), quote.getPreviousClose(), quote.getLatestTradingDay());
+    }
+
+    // Trades only carry a price; previous close and trading day stay as last delivered
+    public Change filter(Tick tick) {
+        return filter(tick.getSymbol(), tick.getPrice(), Double.NaN, null);
+    }
+
+    public synchronized Change filter(String symbol, double price, double previousClose, String tradingDay) {
+        Delivered last = delivered.get(symbol);
+        if (last == null) {
+            last = new Delivered();
+            last.price = price;
+            last.previousClose = previousClose;
+            last.tradingDay = tradingDay;
+            delivered.put(symbol, last);
+            acceptedCount++;
+            return new Change(symbol, EnumSet.allOf(Field.class), price, previousClose);
+        }
+
+        Set<Field> fields = EnumSet.noneOf(Field.class);
+        if (hasMoved(last.price, price)) {
+            last.price = price;
+            fields.add(Field.PRICE);
+        }
+        if (!Double.isNaN(previousClose) && hasMoved(last.previousClose, previousClose)) {
+            last.previousClose = previousClose;
+            fields.add(Field.PREVIOUS_CLOSE);
+        }
+        if (tradingDay != null && !tradingDay.equals(last.tradingDay)) {
+            last.tradingDay = tradingDay;
+            fields.add(Field.TRADING_DAY);
+        }
+
+        if (fields.isEmpty()) {
+            suppressedCount++;
+            return null;
+        }
+        acceptedCount++;
+        return new Change(symbol, fields, last.price, last.previousClose);
+    }
+
+    private boolean hasMoved(double from, double to) {
+        if (Double.isNaN(from)) return !Double.isNaN(to);
+        double delta = Math.abs(to - from);
+        if (delta <= absoluteEpsilon) return false;
+        return from == 0 || delta * 100 > percentEpsilon * Math.abs(from);
+    }
+
+    // The next value for symbol is reported whatever it is, e.g. after its row was rebuilt
+    public synchronized void forget(String symbol) {
+        delivered.remove(symbol);
+    }
+
+    public synchronized void clear() {
+        delivered.clear();
+    }
+
+    public synchronized long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+}
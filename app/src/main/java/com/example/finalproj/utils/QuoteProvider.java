@@ -0,0 +1,23 @@
+package com.example.finalproj.utils;
+
+import android.content.Context;
+
+import java.util.List;
+
+// A backend that can answer quote requests. Providers report what they could resolve through
+// the callback; symbols they leave out are retried elsewhere by QuoteRouter.
+public interface QuoteProvider {
+    String getName();
+
+    // Whether the provider has quota left to serve this many symbols at all
+    boolean canAccept(int symbolCount);
+
+    // Whether a hedge of this many symbols can go out right away without queueing behind the
+    // rate limiter or burning scarce quota
+    boolean canHedge(int symbolCount);
+
+    // Callbacks may arrive on any thread. After the returned handle is cancelled the provider
+    // should stop work and may skip the callback.
+    RequestHandle fetch(Context context, List<String> symbols, ApiManager.Priority priority,
+                        ApiManager.BatchCallback callback);
+}
@@ -0,0 +1,264 @@
+package com.example.finalproj.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.finalproj.model.Quote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sends each quote request to the healthiest provider. If that provider has not answered by
+// its hedge percentile latency, the same symbols go to the next provider too and whichever
+// answers first wins. Symbols a provider fails to resolve fail over to the next one.
+public class QuoteRouter {
+    private static final String TAG = "QuoteRouter";
+
+    private static class Backend {
+        final QuoteProvider provider;
+        final ProviderHealth health = new ProviderHealth();
+
+        Backend(QuoteProvider provider) {
+            this.provider = provider;
+        }
+    }
+
+    private final List<Backend> backends = new ArrayList<>();
+    private final RequestDispatcher<?> scheduler;
+    private final long minHedgeDelay;
+    private final long defaultHedgeDelay;
+    private volatile double hedgePercentile;
+    private final AtomicLong hedgedRequests = new AtomicLong();
+
+    public QuoteRouter(RequestDispatcher<?> scheduler, double hedgePercentile, long minHedgeDelay,
+                       long defaultHedgeDelay, List<QuoteProvider> providers) {
+        this.scheduler = scheduler;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelay = minHedgeDelay;
+        this.defaultHedgeDelay = defaultHedgeDelay;
+        for (QuoteProvider provider : providers) {
+            backends.add(new Backend(provider));
+        }
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getHedgedRequestCount() {
+        return hedgedRequests.get();
+    }
+
+    public Map<String, ProviderHealth> getProviderHealth() {
+        Map<String, ProviderHealth> health = new LinkedHashMap<>();
+        for (Backend backend : backends) {
+            health.put(backend.provider.getName(), backend.health);
+        }
+        return health;
+    }
+
+    public void fetch(Context context, Collection<String> symbols, ApiManager.Priority priority,
+                      ApiManager.BatchCallback callback) {
+        new RoutedRequest(context, new ArrayList<>(symbols), priority, callback).start();
+    }
+
+    // Healthiest first; ties keep the order the providers were registered in
+    private List<Backend> rank(int symbolCount) {
+        List<Backend> ranked = new ArrayList<>();
+        for (Backend backend : backends) {
+            if (backend.provider.canAccept(symbolCount)) {
+                ranked.add(backend);
+            }
+        }
+        ranked.sort(Comparator.comparingDouble((Backend backend) -> backend.health.getScore()).reversed());
+        return ranked;
+    }
+
+    private class RoutedRequest {
+        final Context context;
+        final List<String> symbols;
+        final ApiManager.Priority priority;
+        final ApiManager.BatchCallback callback;
+
+        final Map<String, Quote> quotes = new HashMap<>();
+        final List<Backend> launched = new ArrayList<>();
+        // Attempts in flight, and the handles of those whose fetch has returned
+        final Map<Backend, Long> startTimes = new HashMap<>();
+        final Map<Backend, RequestHandle> running = new HashMap<>();
+        // Attempts the request finished without whose fetch had not returned yet
+        final Set<Backend> abandoned = new HashSet<>();
+        boolean finished = false;
+        String lastError = "No quote provider available";
+
+        RoutedRequest(Context context, List<String> symbols, ApiManager.Priority priority,
+                      ApiManager.BatchCallback callback) {
+            this.context = context;
+            this.symbols = symbols;
+            this.priority = priority;
+            this.callback = callback;
+        }
+
+        void start() {
+            List<Backend> ranked = rank(symbols.size());
+            if (ranked.isEmpty()) {
+                callback.onFailure(lastError);
+                return;
+            }
+
+            Backend primary = ranked.get(0);
+            synchronized (this) {
+                markLaunched(primary);
+            }
+            send(primary, symbols);
+
+            if (ranked.size() > 1) {
+                Backend secondary = ranked.get(1);
+                long delay = Math.max(minHedgeDelay,
+                        primary.health.getLatencyPercentile(hedgePercentile, defaultHedgeDelay));
+                scheduler.schedule(() -> hedge(secondary), delay);
+            }
+        }
+
+        private void hedge(Backend backend) {
+            List<String> missing;
+            synchronized (this) {
+                if (finished || launched.contains(backend) || startTimes.isEmpty()) return;
+
+                missing = getMissingSymbols();
+                if (!backend.provider.canHedge(missing.size())) return;
+                markLaunched(backend);
+            }
+
+            hedgedRequests.incrementAndGet();
+            Log.d(TAG, "Hedging " + missing.size() + " symbols to " + backend.provider.getName());
+            send(backend, missing);
+        }
+
+        // Must hold the lock. The attempt counts as in flight from here until onAttemptDone.
+        private void markLaunched(Backend backend) {
+            launched.add(backend);
+            startTimes.put(backend, System.currentTimeMillis());
+        }
+
+        // Must not hold the lock: a provider may answer synchronously, and the winning answer
+        // runs the caller's callback
+        private void send(Backend backend, List<String> requestSymbols) {
+            RequestHandle handle = backend.provider.fetch(context, requestSymbols, priority,
+                    new ApiManager.BatchCallback() {
+                        @Override
+                        public void onSuccess(Map<String, Quote> result) {
+                            onAttemptDone(backend, result, null);
+                        }
+
+                        @Override
+                        public void onFailure(String errorMessage) {
+                            onAttemptDone(backend, null, errorMessage);
+                        }
+                    });
+            synchronized (this) {
+                if (startTimes.containsKey(backend)) {
+                    running.put(backend, handle);
+                    return;
+                }
+                // Otherwise it has answered already, or another provider finished first
+                if (!abandoned.remove(backend)) return;
+            }
+            handle.cancel();
+        }
+
+        private void onAttemptDone(Backend backend, Map<String, Quote> result, String errorMessage) {
+            Backend next = null;
+            List<String> missing;
+            List<RequestHandle> losers = null;
+            Map<String, Quote> delivered = null;
+            synchronized (this) {
+                Long startTime = startTimes.remove(backend);
+                running.remove(backend);
+                if (finished || startTime == null) return;
+
+                long latency = System.currentTimeMillis() - startTime;
+                if (result != null && !result.isEmpty()) {
+                    backend.health.recordSuccess(latency);
+                    quotes.putAll(result);
+                } else {
+                    backend.health.recordFailure();
+                    lastError = errorMessage != null ? errorMessage : "No data from " + backend.provider.getName();
+                }
+
+                missing = getMissingSymbols();
+                if (!missing.isEmpty()) {
+                    if (!startTimes.isEmpty()) return;
+
+                    next = nextUnlaunched(missing.size());
+                    if (next != null) {
+                        Log.d(TAG, "Failing over " + missing.size() + " symbols to " + next.provider.getName());
+                        markLaunched(next);
+                    }
+                }
+
+                if (next == null) {
+                    finished = true;
+                    losers = abandonRunning();
+                    delivered = new HashMap<>(quotes);
+                }
+            }
+
+            if (next != null) {
+                send(next, missing);
+                return;
+            }
+            for (RequestHandle loser : losers) {
+                loser.cancel();
+            }
+            if (delivered.isEmpty()) {
+                callback.onFailure(lastError);
+            } else {
+                callback.onSuccess(delivered);
+            }
+        }
+
+        private Backend nextUnlaunched(int symbolCount) {
+            for (Backend backend : rank(symbolCount)) {
+                if (!launched.contains(backend)) {
+                    return backend;
+                }
+            }
+            return null;
+        }
+
+        // Must hold the lock. Records every attempt still in flight as abandoned and returns the
+        // handles to cancel once the lock is released; attempts whose fetch has not returned a
+        // handle yet are cancelled by send().
+        private List<RequestHandle> abandonRunning() {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<Backend, Long> entry : startTimes.entrySet()) {
+                entry.getKey().health.recordAbandoned(now - entry.getValue());
+                if (!running.containsKey(entry.getKey())) {
+                    abandoned.add(entry.getKey());
+                }
+            }
+            List<RequestHandle> handles = new ArrayList<>(running.values());
+            running.clear();
+            startTimes.clear();
+            return handles;
+        }
+
+        private List<String> getMissingSymbols() {
+            List<String> missing = new ArrayList<>();
+            for (String symbol : symbols) {
+                if (!quotes.containsKey(symbol)) {
+                    missing.add(symbol);
+                }
+            }
+            return missing;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.finalproj.utils;
+
+import android.util.Log;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+// Rate limited request queue with a visible and a background lane. Producers on any thread only
+// touch the lock-free lanes; a single scheduler thread owns the rate limiter and is the only
+// thread that ever sends.
+public class RequestDispatcher<T> {
+    private static final String TAG = "RequestDispatcher";
+
+    public interface Sink<T> {
+        // Called before a token is spent; dropped tasks never reach send(). Each call should
+        // report its own failures to the task's caller; anything thrown is only logged.
+        boolean isCancelled(T task);
+        void onCancelled(T task);
+        void onQuotaExhausted(T task);
+        void send(T task);
+    }
+
+    private final Queue<T> visibleLane = new ConcurrentLinkedQueue<>();
+    private final Queue<T> backgroundLane = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final SlidingWindowLimiter limiter;
+    private final Sink<T> sink;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService scheduler;
+    // Drain waiting for the next token; only touched on the scheduler thread
+    private ScheduledFuture<?> tokenWait;
+
+    public RequestDispatcher(String threadName, SlidingWindowLimiter limiter, Sink<T> sink) {
+        this(threadName, limiter, sink, System::currentTimeMillis);
+    }
+
+    public RequestDispatcher(String threadName, SlidingWindowLimiter limiter, Sink<T> sink, LongSupplier clock) {
+        this.limiter = limiter;
+        this.sink = sink;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void submit(T task, boolean visible) {
+        (visible ? visibleLane : backgroundLane).offer(task);
+        scheduleDrain();
+    }
+
+    // Re-checks the queue now rather than at the next token, e.g. once the sink has started
+    // dropping tasks that would otherwise sit waiting for a token they will never use
+    public void wakeUp() {
+        scheduler.execute(() -> {
+            if (tokenWait != null && tokenWait.cancel(false)) {
+                tokenWait = null;
+                drain();
+            }
+        });
+    }
+
+    // Runs work on the scheduler thread, e.g. to flush a batching window
+    public void schedule(Runnable task, long delayMillis) {
+        scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int size() {
+        return visibleLane.size() + backgroundLane.size();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        tokenWait = null;
+        while (true) {
+            Queue<T> lane = !visibleLane.isEmpty() ? visibleLane : backgroundLane;
+            T task = lane.peek();
+
+            if (task == null) {
+                drainScheduled.set(false);
+                // A producer may have offered after the empty check but seen drainScheduled
+                // still set; take the drain back in that case instead of losing the wake-up
+                if ((visibleLane.isEmpty() && backgroundLane.isEmpty())
+                        || !drainScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+
+            if (sink.isCancelled(task)) {
+                lane.poll();
+                deliver(() -> sink.onCancelled(task));
+                continue;
+            }
+
+            long now = clock.getAsLong();
+            if (limiter.isDailyQuotaExhausted(now)) {
+                lane.poll();
+                deliver(() -> sink.onQuotaExhausted(task));
+                continue;
+            }
+
+            if (!limiter.tryAcquire(now)) {
+                tokenWait = scheduler.schedule(this::drain, limiter.getDelayUntilAvailable(now),
+                        TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            lane.poll();
+            deliver(() -> sink.send(task));
+        }
+    }
+
+    // A failing task must not stall everyone queued behind it, or kill the scheduler thread
+    private void deliver(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Sink threw while handling a queued task", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.finalproj.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Returned by ApiManager for every request. Cancelling drops the callback and, once nobody else
+// is waiting for the same data, the network call itself.
+public class RequestHandle {
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicBoolean released = new AtomicBoolean(false);
+    private final List<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> releaseListeners = new CopyOnWriteArrayList<>();
+
+    public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            for (Runnable listener : cancelListeners) {
+                listener.run();
+            }
+            release();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    void finish() {
+        release();
+    }
+
+    void addOnCancelListener(Runnable listener) {
+        cancelListeners.add(listener);
+        if (isCancelled()) {
+            listener.run();
+        }
+    }
+
+    void addOnReleaseListener(Runnable listener) {
+        releaseListeners.add(listener);
+        if (released.get()) {
+            listener.run();
+        }
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            for (Runnable listener : releaseListeners) {
+                listener.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.finalproj.utils;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Collects the ApiManager requests started by a screen and cancels them when its lifecycle is
+// destroyed. Bind fragments to getViewLifecycleOwner() so cleanup happens in onDestroyView.
+public class RequestScope implements DefaultLifecycleObserver {
+    private final Set<RequestHandle> handles = ConcurrentHashMap.newKeySet();
+    private volatile boolean destroyed = false;
+
+    public static RequestScope bind(LifecycleOwner owner) {
+        RequestScope scope = new RequestScope();
+        owner.getLifecycle().addObserver(scope);
+        return scope;
+    }
+
+    public RequestHandle add(RequestHandle handle) {
+        if (destroyed) {
+            handle.cancel();
+            return handle;
+        }
+
+        handles.add(handle);
+        handle.addOnReleaseListener(() -> handles.remove(handle));
+        return handle;
+    }
+
+    public void cancelAll() {
+        for (RequestHandle handle : handles) {
+            handle.cancel();
+        }
+        handles.clear();
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        destroyed = true;
+        cancelAll();
+        owner.getLifecycle().removeObserver(this);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.finalproj.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Tracks fetches that are in flight per key. The first caller for a key becomes the leader and
+// performs the fetch; later callers attach to it and are handed the same result on complete().
+public class SingleFlight<K, C> {
+    private final Map<K, List<C>> inFlight = new HashMap<>();
+    private final AtomicLong savedCalls = new AtomicLong();
+
+    public synchronized boolean join(K key, C callback) {
+        List<C> waiters = inFlight.get(key);
+        if (waiters != null) {
+            waiters.add(callback);
+            savedCalls.incrementAndGet();
+            return false;
+        }
+
+        waiters = new ArrayList<>();
+        waiters.add(callback);
+        inFlight.put(key, waiters);
+        return true;
+    }
+
+    public synchronized List<C> complete(K key) {
+        List<C> waiters = inFlight.remove(key);
+        return waiters != null ? waiters : Collections.emptyList();
+    }
+
+    // Drops the flight for key if every waiter matches isCancelled. Returns true when nothing is
+    // waiting for the key any more.
+    public synchronized boolean abandon(K key, Predicate<C> isCancelled) {
+        List<C> waiters = inFlight.get(key);
+        if (waiters == null) {
+            return true;
+        }
+        for (C waiter : waiters) {
+            if (!isCancelled.test(waiter)) {
+                return false;
+            }
+        }
+        inFlight.remove(key);
+        return true;
+    }
+
+    public synchronized boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    public long getSavedCalls() {
+        return savedCalls.get();
+    }
+}
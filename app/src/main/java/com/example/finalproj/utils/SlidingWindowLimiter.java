@@ -0,0 +1,115 @@
+package com.example.finalproj.utils;
+
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.TimeZone;
+
+// Rate limiter sized from a provider's per-minute and per-day limits. It remembers when each of
+// the last perWindow calls was made and admits a call only while fewer than perWindow fall in the
+// rolling window ending now, so a full burst is allowed but no window ever sees more than
+// perWindow calls. The daily count resets at midnight in resetTimeZone.
+public class SlidingWindowLimiter {
+    private final int perWindow;
+    private final long windowMillis;
+    private final int perDay;
+    private final TimeZone resetTimeZone;
+
+    private final Deque<Long> recentCalls = new ArrayDeque<>();
+    private long dayStart;
+    private int usedToday;
+
+    public SlidingWindowLimiter(int perWindow, long windowMillis, int perDay, TimeZone resetTimeZone) {
+        this.perWindow = perWindow;
+        this.windowMillis = windowMillis;
+        this.perDay = perDay;
+        this.resetTimeZone = resetTimeZone;
+    }
+
+    public synchronized boolean tryAcquire(long now) {
+        advance(now);
+        if (usedToday >= perDay || recentCalls.size() >= perWindow) {
+            return false;
+        }
+        recentCalls.addLast(now);
+        usedToday++;
+        return true;
+    }
+
+    // Milliseconds until the window admits another call, or until the daily reset when the
+    // daily quota is used up.
+    public synchronized long getDelayUntilAvailable(long now) {
+        advance(now);
+        if (usedToday >= perDay) {
+            return getNextDayStart(dayStart) - now;
+        }
+        if (recentCalls.size() < perWindow) {
+            return 0;
+        }
+        return Math.max(0, recentCalls.peekFirst() + windowMillis - now);
+    }
+
+    public synchronized boolean isDailyQuotaExhausted(long now) {
+        advance(now);
+        return usedToday >= perDay;
+    }
+
+    public synchronized int getRemainingToday(long now) {
+        advance(now);
+        return Math.max(0, perDay - usedToday);
+    }
+
+    public synchronized long getCurrentDayStart(long now) {
+        advance(now);
+        return dayStart;
+    }
+
+    public synchronized long getNextResetTime(long now) {
+        advance(now);
+        return getNextDayStart(dayStart);
+    }
+
+    public synchronized long getDayStart() {
+        return dayStart;
+    }
+
+    public synchronized int getUsedToday() {
+        return usedToday;
+    }
+
+    public synchronized void restore(long savedDayStart, int savedUsedToday, long now) {
+        advance(now);
+        if (savedDayStart == dayStart) {
+            usedToday = Math.max(usedToday, savedUsedToday);
+        }
+    }
+
+    private void advance(long now) {
+        while (!recentCalls.isEmpty() && recentCalls.peekFirst() + windowMillis <= now) {
+            recentCalls.pollFirst();
+        }
+
+        long currentDayStart = getDayStart(now);
+        if (currentDayStart != dayStart) {
+            dayStart = currentDayStart;
+            usedToday = 0;
+        }
+    }
+
+    private long getDayStart(long time) {
+        Calendar calendar = Calendar.getInstance(resetTimeZone);
+        calendar.setTimeInMillis(time);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private long getNextDayStart(long currentDayStart) {
+        Calendar calendar = Calendar.getInstance(resetTimeZone);
+        calendar.setTimeInMillis(currentDayStart);
+        calendar.add(Calendar.DAY_OF_YEAR, 1);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.Tick;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fans streamed ticks out to the screens watching each symbol. Every subscriber gets its ticks
+// on its own executor, conflated to the latest tick per symbol: a subscriber that is still busy
+// when more trades arrive sees only the newest price, so a feed running at thousands of ticks
+// per second never queues more work than one update per symbol.
+public class TickBus {
+
+    public interface TickListener {
+        void onTick(Tick tick);
+    }
+
+    // The feed behind the bus; told when a symbol gains its first or loses its last subscriber
+    public interface Upstream {
+        void subscribe(String symbol);
+        void unsubscribe(String symbol);
+    }
+
+    private class Subscriber {
+        final Set<String> symbols;
+        final Executor executor;
+        final TickListener listener;
+        final Map<String, Tick> latest = new ConcurrentHashMap<>();
+        final AtomicBoolean deliveryScheduled = new AtomicBoolean(false);
+        volatile boolean active = true;
+
+        Subscriber(Set<String> symbols, Executor executor, TickListener listener) {
+            this.symbols = symbols;
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        void offer(Tick tick) {
+            if (latest.put(tick.getSymbol(), tick) != null) {
+                conflatedTicks.incrementAndGet();
+            }
+            if (deliveryScheduled.compareAndSet(false, true)) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            // Cleared first so ticks arriving while this runs schedule another delivery
+            deliveryScheduled.set(false);
+            for (String symbol : latest.keySet()) {
+                Tick tick = latest.remove(symbol);
+                if (tick != null && active) {
+                    deliveredTicks.incrementAndGet();
+                    listener.onTick(tick);
+                }
+            }
+        }
+    }
+
+    private final Upstream upstream;
+    private final Map<String, Set<Subscriber>> subscribersBySymbol = new ConcurrentHashMap<>();
+    private final AtomicLong publishedTicks = new AtomicLong();
+    private final AtomicLong deliveredTicks = new AtomicLong();
+    private final AtomicLong conflatedTicks = new AtomicLong();
+
+    public TickBus(Upstream upstream) {
+        this.upstream = upstream;
+    }
+
+    // Ticks for symbols are delivered on executor until the returned handle is cancelled
+    public RequestHandle subscribe(Collection<String> symbols, Executor executor, TickListener listener) {
+        Subscriber subscriber = new Subscriber(ConcurrentHashMap.newKeySet(), executor, listener);
+        subscriber.symbols.addAll(symbols);
+
+        // Upstream is told inside compute() so a racing last unsubscribe cannot reorder the calls
+        for (String symbol : subscriber.symbols) {
+            subscribersBySymbol.compute(symbol, (key, subscribers) -> {
+                if (subscribers == null) {
+                    subscribers = new CopyOnWriteArraySet<>();
+                    upstream.subscribe(symbol);
+                }
+                subscribers.add(subscriber);
+                return subscribers;
+            });
+        }
+
+        RequestHandle handle = new RequestHandle();
+        handle.addOnCancelListener(() -> unsubscribe(subscriber));
+        return handle;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.active = false;
+        for (String symbol : subscriber.symbols) {
+            subscribersBySymbol.computeIfPresent(symbol, (key, subscribers) -> {
+                subscribers.remove(subscriber);
+                if (subscribers.isEmpty()) {
+                    upstream.unsubscribe(symbol);
+                    return null;
+                }
+                return subscribers;
+            });
+        }
+    }
+
+    // Called by the feed, on its own thread
+    public void publish(Tick tick) {
+        publishedTicks.incrementAndGet();
+        Set<Subscriber> subscribers = subscribersBySymbol.get(tick.getSymbol());
+        if (subscribers == null) return;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(tick);
+        }
+    }
+
+    public Set<String> getSubscribedSymbols() {
+        return subscribersBySymbol.keySet();
+    }
+
+    public long getPublishedTickCount() {
+        return publishedTicks.get();
+    }
+
+    public long getDeliveredTickCount() {
+        return deliveredTicks.get();
+    }
+
+    public long getConflatedTickCount() {
+        return conflatedTicks.get();
+    }
+}
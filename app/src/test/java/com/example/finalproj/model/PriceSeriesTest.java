@@ -0,0 +1,52 @@
+package com.example.finalproj.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PriceSeriesTest {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long BASE = 1_700_000_000_000L;
+
+    @Test
+    public void slice_keepsCandlesInsideTheWindowInclusive() {
+        PriceSeries year = daily(252);
+
+        PriceSeries quarter = year.slice(BASE + 189 * DAY, BASE + 251 * DAY);
+
+        assertEquals(63, quarter.size());
+        assertEquals(BASE + 189 * DAY, quarter.getTimestamp(0));
+        assertEquals(189f, quarter.getClose(0), 0);
+        assertEquals(BASE + 251 * DAY, quarter.getTimestamp(62));
+    }
+
+    @Test
+    public void slice_betweenCandles_roundsInward() {
+        PriceSeries series = daily(10);
+
+        PriceSeries slice = series.slice(BASE + DAY / 2, BASE + 3 * DAY + DAY / 2);
+
+        assertEquals(3, slice.size());
+        assertEquals(BASE + DAY, slice.getTimestamp(0));
+        assertEquals(BASE + 3 * DAY, slice.getTimestamp(2));
+    }
+
+    @Test
+    public void slice_coveringEverything_returnsTheSameSeries() {
+        PriceSeries series = daily(10);
+
+        assertSame(series, series.slice(BASE - DAY, BASE + 20 * DAY));
+        assertSame(series, series.slice(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertTrue(series.slice(BASE + 20 * DAY, BASE + 30 * DAY).isEmpty());
+    }
+
+    private static PriceSeries daily(int count) {
+        long[] timestamps = new long[count];
+        float[] closes = new float[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = BASE + i * DAY;
+            closes[i] = i;
+        }
+        return new PriceSeries(timestamps, closes, count);
+    }
+}
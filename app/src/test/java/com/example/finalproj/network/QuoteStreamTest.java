@@ -0,0 +1,161 @@
+package com.example.finalproj.network;
+
+import com.example.finalproj.model.Tick;
+import com.example.finalproj.utils.RequestHandle;
+import com.example.finalproj.utils.TickBus;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.*;
+
+public class QuoteStreamTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private TickSimulator simulator;
+    private QuoteStream stream;
+    private ExecutorService consumer;
+    private final AtomicInteger disconnects = new AtomicInteger();
+    private TickBus bus;
+
+    @After
+    public void tearDown() throws Exception {
+        if (stream != null) {
+            stream.shutdown();
+        }
+        if (consumer != null) {
+            consumer.shutdownNow();
+        }
+        if (simulator != null) {
+            simulator.shutdown();
+        }
+    }
+
+    private void start(int ticksPerSecond) throws Exception {
+        simulator = new TickSimulator(ticksPerSecond);
+        TickBus[] busRef = new TickBus[1];
+        stream = new QuoteStream(new OkHttpClient(), simulator.url(), 50, 500, new QuoteStream.Listener() {
+            @Override
+            public void onTicks(List<Tick> ticks) {
+                for (Tick tick : ticks) {
+                    busRef[0].publish(tick);
+                }
+            }
+
+            @Override
+            public void onConnectionChanged(boolean connected, int failedAttempts) {
+                if (!connected) {
+                    disconnects.incrementAndGet();
+                }
+            }
+        });
+        bus = new TickBus(stream);
+        busRef[0] = bus;
+        consumer = Executors.newSingleThreadExecutor();
+    }
+
+    @Test
+    public void highTickRate_slowSubscriberIsConflatedToLatestPerSymbol() throws Exception {
+        start(20_000);
+        Set<String> symbols = new HashSet<>(Arrays.asList("AAPL", "MSFT", "GOOGL"));
+        Map<String, Tick> lastDelivered = new ConcurrentHashMap<>();
+        Set<String> deliveredSymbols = ConcurrentHashMap.newKeySet();
+
+        RequestHandle handle = bus.subscribe(symbols, consumer, tick -> {
+            deliveredSymbols.add(tick.getSymbol());
+            lastDelivered.put(tick.getSymbol(), tick);
+            try {
+                // A subscriber that takes far longer per tick than the feed's tick interval
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        awaitCondition(() -> stream.getReceivedTickCount() >= 20_000);
+        assertEquals(symbols, simulator.getSubscribedSymbols());
+
+        long published = bus.getPublishedTickCount();
+        long delivered = bus.getDeliveredTickCount();
+        assertTrue("delivered " + delivered + " of " + published, delivered < published / 4);
+        assertTrue(bus.getConflatedTickCount() > 0);
+        assertEquals(symbols, deliveredSymbols);
+
+        // Cancelling the only subscription unsubscribes upstream and closes the socket
+        handle.cancel();
+        awaitCondition(() -> simulator.getSubscribedSymbols().isEmpty() && !stream.isConnected());
+        assertTrue(bus.getSubscribedSymbols().isEmpty());
+    }
+
+    @Test
+    public void overlappingSubscriptions_onlySubscribedSymbolsStreamed() throws Exception {
+        start(2_000);
+        Set<String> first = ConcurrentHashMap.newKeySet();
+        Set<String> second = ConcurrentHashMap.newKeySet();
+
+        RequestHandle firstHandle = bus.subscribe(Arrays.asList("AAPL", "MSFT"), consumer,
+                tick -> first.add(tick.getSymbol()));
+        RequestHandle secondHandle = bus.subscribe(Arrays.asList("MSFT", "TSLA"), consumer,
+                tick -> second.add(tick.getSymbol()));
+
+        awaitCondition(() -> first.size() == 2 && second.size() == 2);
+        assertEquals(new HashSet<>(Arrays.asList("AAPL", "MSFT")), first);
+        assertEquals(new HashSet<>(Arrays.asList("MSFT", "TSLA")), second);
+
+        // MSFT is still wanted by the second subscriber
+        firstHandle.cancel();
+        awaitCondition(() -> simulator.getSubscribedSymbols().equals(new HashSet<>(Arrays.asList("MSFT", "TSLA"))));
+        assertTrue(stream.isConnected());
+
+        secondHandle.cancel();
+        awaitCondition(() -> !stream.isConnected());
+    }
+
+    @Test
+    public void droppedConnection_reconnectsAndResubscribes() throws Exception {
+        start(2_000);
+        Set<String> symbols = new HashSet<>(Arrays.asList("AAPL", "NVDA"));
+        AtomicInteger delivered = new AtomicInteger();
+        bus.subscribe(symbols, consumer, tick -> delivered.incrementAndGet());
+
+        awaitCondition(() -> delivered.get() > 0 && simulator.getSubscribedSymbols().equals(symbols));
+
+        for (int drop = 1; drop <= 3; drop++) {
+            simulator.dropConnections();
+            int dropsSoFar = drop;
+            awaitCondition(() -> disconnects.get() >= dropsSoFar);
+
+            int before = delivered.get();
+            awaitCondition(() -> stream.isConnected() && delivered.get() > before);
+            assertEquals(symbols, simulator.getSubscribedSymbols());
+        }
+
+        assertEquals(3, stream.getReconnectCount());
+        assertEquals(4, simulator.getConnectionCount());
+        assertEquals(4 * symbols.size(), simulator.getSubscribeMessages());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for condition");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
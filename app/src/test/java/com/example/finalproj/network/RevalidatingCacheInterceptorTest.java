@@ -0,0 +1,111 @@
+package com.example.finalproj.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class RevalidatingCacheInterceptorTest {
+    private static final String CHART = "{\"chart\":{\"result\":[]}}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder()
+                .cache(new Cache(folder.newFolder("http_cache"), 1024 * 1024))
+                .addNetworkInterceptor(new RevalidatingCacheInterceptor())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void uncacheableResponseWithETag_isRevalidatedWithIfNoneMatch() throws Exception {
+        server.enqueue(new MockResponse().setBody(CHART)
+                .addHeader("Cache-Control", "no-store")
+                .addHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals(CHART, get());
+
+        try (Response response = client.newCall(request()).execute()) {
+            assertEquals(200, response.code());
+            assertEquals(CHART, response.body().string());
+            assertEquals(304, response.networkResponse().code());
+            assertNotNull(response.cacheResponse());
+        }
+        server.takeRequest();
+        RecordedRequest revalidation = server.takeRequest();
+        assertEquals("\"v1\"", revalidation.getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void changedResource_replacesTheCachedBody() throws Exception {
+        server.enqueue(new MockResponse().setBody(CHART)
+                .addHeader("Last-Modified", "Tue, 05 Mar 2024 21:00:00 GMT"));
+        server.enqueue(new MockResponse().setBody("{\"chart\":{\"result\":[{}]}}")
+                .addHeader("Last-Modified", "Wed, 06 Mar 2024 21:00:00 GMT"));
+
+        get();
+
+        assertEquals("{\"chart\":{\"result\":[{}]}}", get());
+        server.takeRequest();
+        assertEquals("Tue, 05 Mar 2024 21:00:00 GMT", server.takeRequest().getHeader("If-Modified-Since"));
+    }
+
+    @Test
+    public void responseWithoutValidator_isNotCached() throws Exception {
+        server.enqueue(new MockResponse().setBody(CHART).addHeader("Cache-Control", "no-cache"));
+        server.enqueue(new MockResponse().setBody(CHART));
+
+        get();
+        get();
+
+        server.takeRequest();
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(0, client.cache().hitCount());
+    }
+
+    @Test
+    public void freshResponse_keepsTheServersMaxAge() throws Exception {
+        server.enqueue(new MockResponse().setBody(CHART)
+                .addHeader("Cache-Control", "max-age=60")
+                .addHeader("ETag", "\"v1\""));
+
+        get();
+
+        assertEquals(CHART, get());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private Request request() {
+        return new Request.Builder().url(server.url("/v8/finance/chart/AAPL?range=1d")).build();
+    }
+
+    private String get() throws Exception {
+        try (Response response = client.newCall(request()).execute()) {
+            return response.body().string();
+        }
+    }
+}
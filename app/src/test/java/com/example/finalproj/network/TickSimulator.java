@@ -0,0 +1,197 @@
+package com.example.finalproj.network;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+// Local trade feed for QuoteStream tests. Every connection is upgraded to a WebSocket that
+// honours subscribe/unsubscribe messages and receives random-walk trades for its subscribed
+// symbols, in batches, at roughly ticksPerSecond per connection.
+class TickSimulator {
+    private static final int BATCH_SIZE = 50;
+    private static final int GOING_AWAY = 1001;
+
+    private final MockWebServer server = new MockWebServer();
+    private final List<WebSocket> sockets = new CopyOnWriteArrayList<>();
+    private final Map<WebSocket, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Double> prices = new ConcurrentHashMap<>();
+    private final AtomicLong sentTicks = new AtomicLong();
+    private final AtomicLong subscribeMessages = new AtomicLong();
+    private final Random random = new Random(42);
+    private final Thread emitter;
+    private volatile boolean running = true;
+
+    TickSimulator(int ticksPerSecond) throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().withWebSocketUpgrade(new ServerListener());
+            }
+        });
+        server.start();
+
+        long batchIntervalNanos = 1_000_000_000L * BATCH_SIZE / ticksPerSecond;
+        emitter = new Thread(() -> {
+            long next = System.nanoTime();
+            while (running) {
+                for (WebSocket socket : sockets) {
+                    emitBatch(socket);
+                }
+                next += batchIntervalNanos;
+                long sleep = next - System.nanoTime();
+                if (sleep > 0) {
+                    try {
+                        Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "TickSimulator");
+        emitter.setDaemon(true);
+        emitter.start();
+    }
+
+    String url() {
+        return server.url("/stream").toString().replaceFirst("^http", "ws");
+    }
+
+    long getSentTicks() {
+        return sentTicks.get();
+    }
+
+    long getSubscribeMessages() {
+        return subscribeMessages.get();
+    }
+
+    int getConnectionCount() {
+        return server.getRequestCount();
+    }
+
+    // Symbols any open connection is currently subscribed to
+    Set<String> getSubscribedSymbols() {
+        Set<String> symbols = ConcurrentHashMap.newKeySet();
+        for (Set<String> subscribed : subscriptions.values()) {
+            symbols.addAll(subscribed);
+        }
+        return symbols;
+    }
+
+    // Closes every open connection from the server side, as a restarting feed would
+    void dropConnections() {
+        for (WebSocket socket : sockets) {
+            sockets.remove(socket);
+            subscriptions.remove(socket);
+            socket.close(GOING_AWAY, "restarting");
+        }
+    }
+
+    void shutdown() throws IOException {
+        running = false;
+        emitter.interrupt();
+        dropConnections();
+        server.shutdown();
+    }
+
+    private void emitBatch(WebSocket socket) {
+        Set<String> symbols = subscriptions.get(socket);
+        if (symbols == null || symbols.isEmpty()) return;
+
+        List<String> candidates = new ArrayList<>(symbols);
+        StringWriter out = new StringWriter();
+        try {
+            JsonWriter writer = new JsonWriter(out);
+            writer.beginObject().name("type").value("trade").name("data").beginArray();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                String symbol = candidates.get(random.nextInt(candidates.size()));
+                double price = prices.merge(symbol, 100.0, (old, unused) -> old * (1 + (random.nextDouble() - 0.5) / 500));
+                writer.beginObject()
+                        .name("s").value(symbol)
+                        .name("p").value(price)
+                        .name("v").value(1 + random.nextInt(500))
+                        .name("t").value(System.currentTimeMillis())
+                        .endObject();
+            }
+            writer.endArray().endObject().flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if (socket.send(out.toString())) {
+            sentTicks.addAndGet(BATCH_SIZE);
+        }
+    }
+
+    private class ServerListener extends WebSocketListener {
+        @Override
+        public void onOpen(WebSocket socket, Response response) {
+            subscriptions.put(socket, ConcurrentHashMap.newKeySet());
+            sockets.add(socket);
+        }
+
+        @Override
+        public void onMessage(WebSocket socket, String text) {
+            String type = null;
+            String symbol = null;
+            try {
+                JsonReader reader = new JsonReader(new StringReader(text));
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "type":
+                            type = reader.nextString();
+                            break;
+                        case "symbol":
+                            symbol = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } catch (IOException e) {
+                return;
+            }
+
+            Set<String> symbols = subscriptions.get(socket);
+            if (symbols == null || symbol == null) return;
+            if ("subscribe".equals(type)) {
+                subscribeMessages.incrementAndGet();
+                symbols.add(symbol);
+            } else if ("unsubscribe".equals(type)) {
+                symbols.remove(symbol);
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket socket, int code, String reason) {
+            sockets.remove(socket);
+            subscriptions.remove(socket);
+            socket.close(code, null);
+        }
+
+        @Override
+        public void onFailure(WebSocket socket, Throwable t, Response response) {
+            sockets.remove(socket);
+            subscriptions.remove(socket);
+        }
+    }
+}
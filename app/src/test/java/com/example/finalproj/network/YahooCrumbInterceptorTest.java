@@ -0,0 +1,125 @@
+package com.example.finalproj.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.CookieJar;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class YahooCrumbInterceptorTest {
+    private static final String UNAUTHORIZED =
+            "{\"finance\":{\"result\":null,\"error\":{\"code\":\"Unauthorized\",\"description\":\"Invalid Crumb\"}}}";
+
+    private MockWebServer server;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger crumbRequests = new AtomicInteger();
+    private volatile String validCrumb;
+    private volatile boolean rejectAll;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getRequestUrl().encodedPath();
+                String cookie = request.getHeader("Cookie");
+                String session = "A3=s" + sessions.get();
+                switch (path) {
+                    case "/cookie":
+                        sessions.incrementAndGet();
+                        return new MockResponse().setResponseCode(404)
+                                .addHeader("Set-Cookie", "A3=s" + sessions.get() + "; Path=/");
+                    case "/v1/test/getcrumb":
+                        if (cookie == null || !cookie.contains(session)) {
+                            return new MockResponse().setResponseCode(401);
+                        }
+                        validCrumb = "crumb" + crumbRequests.incrementAndGet();
+                        return new MockResponse().setBody(validCrumb);
+                    case "/v7/finance/quote":
+                        if (rejectAll || cookie == null || !cookie.contains(session)
+                                || !String.valueOf(validCrumb).equals(request.getRequestUrl().queryParameter("crumb"))) {
+                            return new MockResponse().setResponseCode(401).setBody(UNAUTHORIZED);
+                        }
+                        return new MockResponse().setBody("{\"quoteResponse\":{\"result\":[]}}");
+                    default:
+                        return new MockResponse().setResponseCode(404);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private OkHttpClient newClient() {
+        OkHttpClient base = new OkHttpClient();
+        CookieJar cookieJar = new YahooCrumbInterceptor.SessionCookieJar();
+        return base.newBuilder()
+                .cookieJar(cookieJar)
+                .addInterceptor(new YahooCrumbInterceptor(base, cookieJar,
+                        server.url("/cookie"), server.url("/v1/test/getcrumb")))
+                .build();
+    }
+
+    private int quote(OkHttpClient client) throws Exception {
+        Request request = new Request.Builder().url(server.url("/v7/finance/quote?symbols=AAPL,MSFT")).build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.code();
+        }
+    }
+
+    @Test
+    public void firstRequest_fetchesCookieAndCrumbOnce() throws Exception {
+        OkHttpClient client = newClient();
+
+        assertEquals(200, quote(client));
+        assertEquals(200, quote(client));
+
+        assertEquals(1, sessions.get());
+        assertEquals(1, crumbRequests.get());
+        RecordedRequest cookie = server.takeRequest();
+        RecordedRequest crumb = server.takeRequest();
+        RecordedRequest first = server.takeRequest();
+        assertEquals("/cookie", cookie.getRequestUrl().encodedPath());
+        assertEquals("/v1/test/getcrumb", crumb.getRequestUrl().encodedPath());
+        assertEquals("crumb1", first.getRequestUrl().queryParameter("crumb"));
+        assertEquals("AAPL,MSFT", first.getRequestUrl().queryParameter("symbols"));
+    }
+
+    @Test
+    public void rejectedCrumb_isRefreshedAndTheRequestRetriedOnce() throws Exception {
+        OkHttpClient client = newClient();
+        assertEquals(200, quote(client));
+
+        // Yahoo expires the crumb
+        validCrumb = "expired";
+
+        assertEquals(200, quote(client));
+        assertEquals(2, crumbRequests.get());
+    }
+
+    @Test
+    public void persistent401_isReturnedSoTheCallerCanFailOver() throws Exception {
+        OkHttpClient client = newClient();
+        rejectAll = true;
+
+        assertEquals(401, quote(client));
+        // One handshake for the first attempt and one for the single retry
+        assertEquals(2, crumbRequests.get());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.finalproj.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CacheBudgetTest {
+
+    @Test
+    public void underBudget_evictsNothing() {
+        CacheBudget budget = new CacheBudget(1000, CacheBudget.Policy.LRU);
+
+        List<CacheBudget.Entry> victims = budget.selectVictims(Arrays.asList(
+                candles("AAPL", 400, 10, 1),
+                candles("MSFT", 400, 20, 1)), Collections.emptySet());
+
+        assertTrue(victims.isEmpty());
+    }
+
+    @Test
+    public void lru_evictsOldestAccessUntilUnderBudget() {
+        CacheBudget budget = new CacheBudget(1000, CacheBudget.Policy.LRU);
+
+        List<CacheBudget.Entry> victims = budget.selectVictims(Arrays.asList(
+                candles("AAPL", 500, 30, 1),
+                candles("MSFT", 500, 10, 50),
+                candles("TSLA", 500, 20, 1),
+                quote("AAPL", 40)), Collections.emptySet());
+
+        assertEquals(2, victims.size());
+        assertEquals("MSFT", victims.get(0).symbol);
+        assertEquals("TSLA", victims.get(1).symbol);
+    }
+
+    @Test
+    public void lfu_evictsLeastReadFirst() {
+        CacheBudget budget = new CacheBudget(1000, CacheBudget.Policy.LFU);
+
+        List<CacheBudget.Entry> victims = budget.selectVictims(Arrays.asList(
+                candles("AAPL", 500, 30, 1),
+                candles("MSFT", 500, 10, 50),
+                candles("TSLA", 500, 20, 3)), Collections.emptySet());
+
+        assertEquals(1, victims.size());
+        assertEquals("AAPL", victims.get(0).symbol);
+    }
+
+    @Test
+    public void pinnedSymbols_areNeverEvicted() {
+        CacheBudget budget = new CacheBudget(100, CacheBudget.Policy.LRU);
+
+        List<CacheBudget.Entry> victims = budget.selectVictims(Arrays.asList(
+                candles("AAPL", 500, 1, 1),
+                quote("AAPL", 1),
+                candles("MSFT", 500, 50, 1)), Collections.singleton("AAPL"));
+
+        // Still over budget after evicting everything unpinned
+        assertEquals(1, victims.size());
+        assertEquals("MSFT", victims.get(0).symbol);
+    }
+
+    private static CacheBudget.Entry candles(String symbol, long bytes, long lastAccess, long hits) {
+        return new CacheBudget.Entry(symbol, "1d", bytes, lastAccess, hits);
+    }
+
+    private static CacheBudget.Entry quote(String symbol, long lastAccess) {
+        return new CacheBudget.Entry(symbol, "", 64, lastAccess, 0);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.PriceSeries;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// Open-to-render time of a cached chart: from the file on disk to the x/y arrays the chart is
+// drawn from, for the JSON cache format (MarketDataParser.writeSeries), for version 1 candle
+// files (fixed-width columns walked in place) and for the varint blocks CandleFile writes now.
+// Also times a range read of the newest fifth of the series, as narrower timespans are sliced
+// out of the widest one. Prints microseconds per open; run with the unit tests and read the
+// output.
+public class CandleFileBenchmark {
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 5_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void oneYearDaily() throws Exception {
+        // ~252 sessions
+        compare("1Y/1d", CandleFileTest.series(1_700_000_000_000L, TimeUnit.DAYS.toMillis(1), 252));
+    }
+
+    @Test
+    public void oneWeekFifteenMinute() throws Exception {
+        // 5 sessions of 26 bars
+        compare("1W/15m", CandleFileTest.series(1_700_000_000_000L, TimeUnit.MINUTES.toMillis(15), 130));
+    }
+
+    @Test
+    public void fiveYearDaily() throws Exception {
+        compare("5Y/1d", CandleFileTest.series(1_700_000_000_000L, TimeUnit.DAYS.toMillis(1), 1260));
+    }
+
+    private void compare(String name, PriceSeries series) throws Exception {
+        File json = new File(folder.getRoot(), "series.json");
+        try (Writer out = new FileWriter(json)) {
+            MarketDataParser.writeSeries(out, series);
+        }
+        File v1 = new File(folder.getRoot(), "series_v1.candles");
+        CandleFileTest.writeVersionOne(v1, series);
+        File v2 = new File(folder.getRoot(), "series_v2.candles");
+        CandleFile.write(v2, series);
+        long rangeStart = series.getTimestamp(series.size() * 4 / 5);
+
+        float jsonChecksum = 0;
+        float v1Checksum = 0;
+        float v2Checksum = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            jsonChecksum = render(openJson(json));
+            v1Checksum = render(CandleFile.read(v1));
+            v2Checksum = render(CandleFile.read(v2));
+            render(CandleFile.read(v1, rangeStart, Long.MAX_VALUE));
+            render(CandleFile.read(v2, rangeStart, Long.MAX_VALUE));
+        }
+        assertEquals(jsonChecksum, v1Checksum, 0);
+        assertEquals(jsonChecksum, v2Checksum, 0);
+
+        long[] nanos = new long[5];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            render(openJson(json));
+            long afterJson = System.nanoTime();
+            render(CandleFile.read(v1));
+            long afterV1 = System.nanoTime();
+            render(CandleFile.read(v2));
+            long afterV2 = System.nanoTime();
+            render(CandleFile.read(v1, rangeStart, Long.MAX_VALUE));
+            long afterV1Range = System.nanoTime();
+            render(CandleFile.read(v2, rangeStart, Long.MAX_VALUE));
+            long end = System.nanoTime();
+            nanos[0] += afterJson - start;
+            nanos[1] += afterV1 - afterJson;
+            nanos[2] += afterV2 - afterV1;
+            nanos[3] += afterV1Range - afterV2;
+            nanos[4] += end - afterV1Range;
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%s, %d candles: JSON %d bytes %.1f us/open, v1 %d bytes %.1f us/open, v2 %d bytes %.1f us/open;"
+                        + " last fifth: v1 %.1f us, v2 %.1f us",
+                name, series.size(),
+                json.length(), micros(nanos[0]),
+                v1.length(), micros(nanos[1]),
+                v2.length(), micros(nanos[2]),
+                micros(nanos[3]), micros(nanos[4])));
+    }
+
+    private static double micros(long totalNanos) {
+        return totalNanos / 1000.0 / MEASURED_ROUNDS;
+    }
+
+    private static PriceSeries openJson(File file) throws Exception {
+        try (Reader in = new FileReader(file)) {
+            return MarketDataParser.readSeries(in);
+        }
+    }
+
+    // What the chart adapters do with a series: one (x, y) point per candle
+    private static float render(PriceSeries series) {
+        float[] x = new float[series.size()];
+        float[] y = new float[series.size()];
+        float checksum = 0;
+        for (int i = 0; i < series.size(); i++) {
+            x[i] = series.getTimestamp(i);
+            y[i] = series.getClose(i);
+            checksum += y[i];
+        }
+        return checksum + x.length;
+    }
+}
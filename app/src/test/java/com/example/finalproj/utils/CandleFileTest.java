@@ -0,0 +1,205 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.PriceSeries;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class CandleFileTest {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_preservesTimestampsAndCloses() throws Exception {
+        PriceSeries series = series(1_700_000_000_000L, DAY, 300);
+        File file = new File(folder.getRoot(), "AAPL_1d.candles");
+
+        CandleFile.write(file, series);
+
+        assertSameSeries(series, CandleFile.read(file));
+    }
+
+    @Test
+    public void centPrices_areStoredOverTenTimesSmallerThanJson() throws Exception {
+        // A year of daily bars with cent prices, as Yahoo returns them
+        PriceSeries year = tradingDays(1_700_000_000_000L, 252);
+        File file = new File(folder.getRoot(), "SPY_1d.candles");
+        StringWriter json = new StringWriter();
+        MarketDataParser.writeSeries(json, year);
+
+        CandleFile.write(file, year);
+
+        assertSameSeries(year, CandleFile.read(file));
+        assertTrue(file.length() + " bytes against " + json.toString().length() + " of JSON",
+                file.length() * 10 < json.toString().length());
+        assertTrue(file.length() < 252 * 8 / 2);
+    }
+
+    @Test
+    public void versionOneFiles_areStillRead() throws Exception {
+        long base = 1_700_000_000_000L;
+        PriceSeries series = series(base, DAY, 20);
+        File file = new File(folder.getRoot(), "IBM_1d.candles");
+        writeVersionOne(file, series);
+
+        assertSameSeries(series, CandleFile.read(file));
+        assertEquals(base + 19 * DAY, CandleFile.readLastTimestamp(file));
+        assertEquals(5, CandleFile.read(file, base + 5 * DAY, base + 9 * DAY).size());
+    }
+
+    @Test
+    public void rangeRead_returnsOnlyCandlesInsideTheWindow() throws Exception {
+        long base = 1_700_000_000_000L;
+        File file = new File(folder.getRoot(), "MSFT_1d.candles");
+        CandleFile.write(file, series(base, DAY, 100));
+
+        PriceSeries window = CandleFile.read(file, base + 10 * DAY, base + 19 * DAY);
+
+        assertEquals(10, window.size());
+        assertEquals(base + 10 * DAY, window.getTimestamp(0));
+        assertEquals(base + 19 * DAY, window.getTimestamp(9));
+        assertEquals(closeAt(10), window.getClose(0), 0);
+        assertEquals(0, CandleFile.read(file, base + 200 * DAY, base + 300 * DAY).size());
+    }
+
+    @Test
+    public void rangeRead_acrossBlockBoundaries_matchesTheFullSeries() throws Exception {
+        long base = 1_700_000_000_000L;
+        PriceSeries series = series(base, DAY, CandleFile.BLOCK_CANDLES * 4 + 7);
+        File file = new File(folder.getRoot(), "AMZN_1d.candles");
+        CandleFile.write(file, series);
+
+        int from = CandleFile.BLOCK_CANDLES - 3;
+        int to = CandleFile.BLOCK_CANDLES * 3 + 2;
+        PriceSeries window = CandleFile.read(file, base + from * DAY, base + to * DAY);
+
+        assertEquals(to - from + 1, window.size());
+        for (int i = 0; i < window.size(); i++) {
+            assertEquals(series.getTimestamp(from + i), window.getTimestamp(i));
+            assertEquals(series.getClose(from + i), window.getClose(i), 0);
+        }
+        PriceSeries tail = CandleFile.read(file, base + (series.size() - 1) * DAY, Long.MAX_VALUE);
+        assertEquals(1, tail.size());
+    }
+
+    @Test
+    public void rangeRead_decodesOnlyTheBlocksInsideTheWindow() throws Exception {
+        long base = 1_700_000_000_000L;
+        File file = new File(folder.getRoot(), "GOOG_1d.candles");
+        CandleFile.write(file, series(base, DAY, CandleFile.BLOCK_CANDLES * 3));
+        // Cut into the last block's payload, keeping the index
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        assertEquals(10, CandleFile.read(file, base, base + 9 * DAY).size());
+        try {
+            CandleFile.read(file);
+            fail("The truncated block was not read");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void millisecondTimestamps_areKeptExactly() throws Exception {
+        long[] timestamps = {1_700_000_000_123L, 1_700_000_000_456L, 1_700_000_060_789L};
+        float[] closes = {1f, 2f, 3f};
+        PriceSeries series = new PriceSeries(timestamps, closes, 3);
+        File file = new File(folder.getRoot(), "ms.candles");
+
+        CandleFile.write(file, series);
+
+        assertSameSeries(series, CandleFile.read(file));
+    }
+
+    @Test
+    public void missingFile_readsAsNull() throws Exception {
+        assertNull(CandleFile.read(new File(folder.getRoot(), "none.candles")));
+    }
+
+    @Test
+    public void lastTimestamp_isReadWithoutTheColumns() throws Exception {
+        long base = 1_700_000_000_000L;
+        File file = new File(folder.getRoot(), "NVDA_1d.candles");
+        CandleFile.write(file, series(base, DAY, 50));
+
+        assertEquals(base + 49 * DAY, CandleFile.readLastTimestamp(file));
+        assertEquals(-1, CandleFile.readLastTimestamp(new File(folder.getRoot(), "none.candles")));
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownVersion_isRejected() throws Exception {
+        File file = new File(folder.getRoot(), "future.candles");
+        CandleFile.write(file, series(1_700_000_000_000L, DAY, 5));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.writeInt(Integer.reverseBytes(99));
+        }
+
+        CandleFile.read(file);
+    }
+
+    // Weekdays only, closes on a cent grid
+    private static PriceSeries tradingDays(long start, int count) {
+        long[] timestamps = new long[count];
+        float[] closes = new float[count];
+        long timestamp = start;
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = timestamp;
+            closes[i] = Math.round(closeAt(i) * 100) / 100f;
+            timestamp += (i % 5 == 4 ? 3 : 1) * DAY;
+        }
+        return new PriceSeries(timestamps, closes, count);
+    }
+
+    static void writeVersionOne(File file, PriceSeries series) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CandleFile.V1_HEADER_BYTES + series.size() * 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(CandleFile.MAGIC).putInt(1).putInt(series.size()).putInt(1000).putLong(series.getTimestamp(0));
+        for (int i = 0; i < series.size(); i++) {
+            long previous = i == 0 ? series.getTimestamp(0) : series.getTimestamp(i - 1);
+            buffer.putInt((int) ((series.getTimestamp(i) - previous) / 1000));
+        }
+        for (int i = 0; i < series.size(); i++) {
+            buffer.putFloat(series.getClose(i));
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+    }
+
+    static PriceSeries series(long start, long step, int count) {
+        long[] timestamps = new long[count];
+        float[] closes = new float[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = start + i * step;
+            closes[i] = closeAt(i);
+        }
+        return new PriceSeries(timestamps, closes, count);
+    }
+
+    private static float closeAt(int i) {
+        return 100f + (float) Math.sin(i / 7.0) * 10f;
+    }
+
+    private static void assertSameSeries(PriceSeries expected, PriceSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTimestamp(i), actual.getTimestamp(i));
+            assertEquals(expected.getClose(i), actual.getClose(i), 0);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.finalproj.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    public void closedBreaker_letsEveryCallThrough() {
+        CircuitBreaker breaker = new CircuitBreaker();
+
+        assertTrue(breaker.tryAcquire(NOW));
+        assertTrue(breaker.tryAcquire(NOW));
+        assertFalse(breaker.isRejecting(NOW));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void trippedBreaker_rejectsUntilTheResetTime() {
+        CircuitBreaker breaker = new CircuitBreaker();
+
+        breaker.trip(NOW + MINUTE);
+
+        assertTrue(breaker.isRejecting(NOW));
+        assertFalse(breaker.tryAcquire(NOW + MINUTE - 1));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.isRejecting(NOW + MINUTE));
+    }
+
+    @Test
+    public void pastTheResetTime_exactlyOneProbeGoesOut() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.trip(NOW + MINUTE);
+
+        assertTrue(breaker.tryAcquire(NOW + MINUTE));
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(NOW + MINUTE));
+        assertFalse(breaker.tryAcquire(NOW + 10 * MINUTE));
+        assertTrue(breaker.isRejecting(NOW + 10 * MINUTE));
+    }
+
+    @Test
+    public void successfulProbe_closesTheBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.trip(NOW + MINUTE);
+        breaker.tryAcquire(NOW + MINUTE);
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire(NOW + MINUTE));
+        assertTrue(breaker.tryAcquire(NOW + MINUTE));
+    }
+
+    @Test
+    public void rateLimitedProbe_reopensUntilTheNewResetTime() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.trip(NOW + MINUTE);
+        breaker.tryAcquire(NOW + MINUTE);
+
+        // Still the same outage, so nobody is told again
+        assertFalse(breaker.trip(NOW + 3 * MINUTE));
+
+        assertEquals(NOW + 3 * MINUTE, breaker.getReopenAt());
+        assertFalse(breaker.tryAcquire(NOW + 2 * MINUTE));
+        assertTrue(breaker.tryAcquire(NOW + 3 * MINUTE));
+    }
+
+    @Test
+    public void inconclusiveProbe_letsTheNextCallProbe() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.trip(NOW + MINUTE);
+        breaker.tryAcquire(NOW + MINUTE);
+
+        breaker.onInconclusive();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire(NOW + MINUTE + 1));
+        assertFalse(breaker.tryAcquire(NOW + MINUTE + 1));
+    }
+
+    @Test
+    public void inconclusiveCall_whileClosed_changesNothing() {
+        CircuitBreaker breaker = new CircuitBreaker();
+
+        breaker.onInconclusive();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void trip_reportsOnlyTheFirstOpeningOfAnOutage() {
+        CircuitBreaker breaker = new CircuitBreaker();
+
+        assertTrue(breaker.trip(NOW + MINUTE));
+        assertFalse(breaker.trip(NOW + 2 * MINUTE));
+
+        breaker.tryAcquire(NOW + 2 * MINUTE);
+        breaker.onSuccess();
+
+        assertTrue(breaker.trip(NOW + 5 * MINUTE));
+    }
+}
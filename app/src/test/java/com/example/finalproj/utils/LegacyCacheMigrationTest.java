@@ -0,0 +1,125 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.Quote;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.Assert.*;
+
+public class LegacyCacheMigrationTest {
+    // shared_prefs/StockPrefs.xml as the original release left it: saveStockData wrote the whole
+    // GLOBAL_QUOTE response through JSONObject.toString, and charts were saved as their response
+    private static final String BASELINE_PREFS = "<?xml version='1.0' encoding='utf-8' standalone='yes' ?>\n"
+            + "<map>\n"
+            + "    <string name=\"stock_AAPL\">{&quot;Global Quote&quot;:{&quot;01. symbol&quot;:&quot;AAPL&quot;,"
+            + "&quot;05. price&quot;:&quot;189.8400&quot;,&quot;07. latest trading day&quot;:&quot;2024-03-05&quot;,"
+            + "&quot;08. previous close&quot;:&quot;187.6800&quot;}}</string>\n"
+            + "    <long name=\"last_update_AAPL\" value=\"1709672400000\" />\n"
+            + "    <string name=\"stock_TSLA\">{&quot;Note&quot;:&quot;Thank you for using Alpha Vantage! Our standard "
+            + "API call frequency is 5 calls per minute&quot;}</string>\n"
+            + "    <long name=\"last_update_TSLA\" value=\"1709672460000\" />\n"
+            + "    <string name=\"graph_data_AAPL_1W\">{&quot;Meta Data&quot;:{&quot;2. Symbol&quot;:&quot;AAPL&quot;},"
+            + "&quot;Time Series (60min)&quot;:{&quot;2024-03-05 16:00:00&quot;:{&quot;4. close&quot;:&quot;170.1200&quot;}}}"
+            + "</string>\n"
+            + "    <long name=\"last_graph_update_AAPL_1W\" value=\"1709672400000\" />\n"
+            + "    <long name=\"last_notification_AAPL\" value=\"1709670000000\" />\n"
+            + "</map>\n";
+
+    @Test
+    public void baselinePrefs_migrateQuotesAndRemoveEveryCacheKey() throws Exception {
+        Map<String, Object> prefs = parsePrefs(BASELINE_PREFS);
+
+        LegacyCacheMigration migration = LegacyCacheMigration.read(prefs);
+
+        assertEquals(1, migration.quotes.size());
+        Quote quote = migration.quotes.get(0);
+        assertEquals("AAPL", quote.getSymbol());
+        assertEquals(189.84, quote.getPrice(), 1e-9);
+        assertEquals(187.68, quote.getPreviousClose(), 1e-9);
+        assertEquals("2024-03-05", quote.getLatestTradingDay());
+        assertEquals(1709672400000L, quote.getFetchedAt());
+        // The chart is in the response format the streaming parser does not read
+        assertTrue(migration.series.isEmpty());
+
+        prefs.keySet().removeAll(migration.keysToRemove);
+
+        assertEquals(1, prefs.size());
+        assertTrue(prefs.containsKey("last_notification_AAPL"));
+    }
+
+    @Test
+    public void quoteFields_winOverTheOlderStockResponse() {
+        Map<String, Object> prefs = new HashMap<>();
+        prefs.put("stock_MSFT", "{\"Global Quote\":{\"05. price\":\"400.00\",\"08. previous close\":\"390.00\"}}");
+        prefs.put("quote_MSFT_price", Double.doubleToLongBits(410.5));
+        prefs.put("quote_MSFT_previous_close", Double.doubleToLongBits(405.0));
+        prefs.put("quote_MSFT_trading_day", "2024-03-06");
+        prefs.put("last_update_MSFT", 1709758800000L);
+
+        LegacyCacheMigration migration = LegacyCacheMigration.read(prefs);
+
+        assertEquals(1, migration.quotes.size());
+        assertEquals(410.5, migration.quotes.get(0).getPrice(), 0);
+        assertEquals(1709758800000L, migration.quotes.get(0).getFetchedAt());
+        assertEquals(prefs.keySet(), migration.keysToRemove);
+    }
+
+    @Test
+    public void compactCharts_areMigratedWithTheirFetchTime() {
+        Map<String, Object> prefs = new HashMap<>();
+        prefs.put("graph_data_NVDA_1M", "{\"t\":[1709586000000,1709672400000],\"c\":[850.5,860.25]}");
+        prefs.put("last_graph_update_NVDA_1M", 1709672500000L);
+
+        LegacyCacheMigration migration = LegacyCacheMigration.read(prefs);
+
+        assertEquals(1, migration.series.size());
+        LegacyCacheMigration.LegacySeries series = migration.series.get(0);
+        assertEquals("NVDA", series.symbol);
+        assertEquals("1M", series.timespan);
+        assertEquals(2, series.series.size());
+        assertEquals(860.25f, series.series.getClose(1), 0);
+        assertEquals(1709672500000L, series.fetchedAt);
+        assertEquals(prefs.keySet(), migration.keysToRemove);
+    }
+
+    @Test
+    public void prefsWithoutCacheEntries_needNoMigration() {
+        Map<String, Object> prefs = new HashMap<>();
+        prefs.put("last_notification_AAPL", 1709670000000L);
+
+        assertTrue(LegacyCacheMigration.read(prefs).keysToRemove.isEmpty());
+    }
+
+    // The subset of the SharedPreferences XML format the cache used
+    private static Map<String, Object> parsePrefs(String xml) throws Exception {
+        NodeList nodes = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(xml))).getDocumentElement().getChildNodes();
+        Map<String, Object> prefs = new HashMap<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i).getNodeType() != Node.ELEMENT_NODE) continue;
+            Element element = (Element) nodes.item(i);
+            String name = element.getAttribute("name");
+            switch (element.getTagName()) {
+                case "string":
+                    prefs.put(name, element.getTextContent());
+                    break;
+                case "long":
+                    prefs.put(name, Long.parseLong(element.getAttribute("value")));
+                    break;
+                default:
+                    throw new IllegalArgumentException(element.getTagName());
+            }
+        }
+        return prefs;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.finalproj.utils;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class MarketSessionTest {
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long MINUTE = 60_000L;
+
+    private final MarketSession session = new MarketSession();
+
+    // {year, month, day} of full-day NYSE closures
+    private static final int[][] HOLIDAYS = {
+            {2022, 1, 17}, {2022, 6, 20}, {2022, 12, 26},
+            {2023, 1, 2}, {2023, 4, 7}, {2023, 6, 19}, {2023, 11, 23},
+            {2024, 1, 1}, {2024, 1, 15}, {2024, 2, 19}, {2024, 3, 29}, {2024, 5, 27},
+            {2024, 6, 19}, {2024, 7, 4}, {2024, 9, 2}, {2024, 11, 28}, {2024, 12, 25},
+            {2025, 4, 18}, {2025, 5, 26}, {2025, 11, 27},
+            {2026, 4, 3}, {2026, 7, 3}, {2026, 12, 25},
+            {2027, 7, 5}, {2027, 12, 24},
+            // Christmas on a Saturday is observed on the Friday
+            {2021, 12, 24},
+    };
+
+    // Weekdays next to holidays that are regular sessions
+    private static final int[][] REGULAR_DAYS = {
+            // New Year's Day on a Saturday is not moved back into the old year
+            {2021, 12, 31}, {2022, 1, 3},
+            {2021, 6, 18}, {2024, 3, 28}, {2024, 4, 1}, {2026, 7, 2}, {2026, 7, 6},
+    };
+
+    // {year, month, day} of 13:00 closes
+    private static final int[][] EARLY_CLOSES = {
+            {2023, 7, 3}, {2023, 11, 24},
+            {2024, 7, 3}, {2024, 11, 29}, {2024, 12, 24},
+            {2025, 7, 3}, {2025, 11, 28}, {2025, 12, 24},
+            {2026, 11, 27}, {2026, 12, 24},
+    };
+
+    @Test
+    public void holidays_haveNoSession() {
+        for (int[] day : HOLIDAYS) {
+            assertFalse(label(day), session.isOpen(newYork(day, 11, 0)));
+            assertFalse(label(day), session.isTradingDay(calendar(day)));
+        }
+    }
+
+    @Test
+    public void daysAroundHolidays_tradeAFullSession() {
+        for (int[] day : REGULAR_DAYS) {
+            assertTrue(label(day), session.isOpen(newYork(day, 9, 30)));
+            assertTrue(label(day), session.isOpen(newYork(day, 15, 59)));
+            assertFalse(label(day), session.isOpen(newYork(day, 16, 0)));
+        }
+    }
+
+    @Test
+    public void earlyCloses_endAtOnePm() {
+        for (int[] day : EARLY_CLOSES) {
+            assertTrue(label(day), session.isOpen(newYork(day, 12, 59)));
+            assertFalse(label(day), session.isOpen(newYork(day, 13, 0)));
+            assertEquals(label(day), newYork(day, 13, 0), session.getLastClose(newYork(day, 14, 0)));
+        }
+    }
+
+    @Test
+    public void earlyClose_capsFreshnessAtTheSettledClose() {
+        int[] day = {2024, 11, 29};
+
+        assertEquals(newYork(day, 13, 10), session.getExpiresAt(newYork(day, 12, 55), 15 * MINUTE));
+        assertEquals(newYork(day, 13, 15), session.getExpiresAt(newYork(day, 12, 59), 60 * MINUTE));
+        // After the settle point nothing changes until Monday's open
+        assertEquals(newYork(new int[]{2024, 12, 2}, 9, 30), session.getExpiresAt(newYork(day, 13, 20), 15 * MINUTE));
+    }
+
+    @Test
+    public void openingBell_followsDaylightSavingTime() {
+        // {year, month, day, UTC hour of the 9:30 open}
+        int[][] opens = {
+                {2024, 3, 8, 14}, {2024, 3, 11, 13},
+                {2024, 11, 1, 13}, {2024, 11, 4, 14},
+                {2025, 3, 7, 14}, {2025, 3, 10, 13},
+        };
+
+        for (int[] open : opens) {
+            long bell = utc(open[0], open[1], open[2], open[3], 30);
+            assertFalse(label(open), session.isOpen(bell - 1));
+            assertTrue(label(open), session.isOpen(bell));
+        }
+    }
+
+    @Test
+    public void nextOpen_acrossTheSpringForwardWeekend() {
+        long fridayAfterClose = utc(2024, 3, 8, 21, 30);
+
+        assertEquals(utc(2024, 3, 11, 13, 30), session.getNextOpen(fridayAfterClose));
+        assertEquals(utc(2024, 3, 11, 13, 30), session.getExpiresAt(fridayAfterClose, 15 * MINUTE));
+    }
+
+    @Test
+    public void lastClose_acrossTheFallBackWeekend() {
+        long mondayMorning = utc(2024, 11, 4, 12, 0);
+
+        assertEquals(utc(2024, 11, 1, 20, 0), session.getLastClose(mondayMorning));
+        assertEquals(utc(2024, 11, 4, 21, 0), session.getLastClose(utc(2024, 11, 4, 21, 0)));
+    }
+
+    @Test
+    public void nextOpen_skipsALongHolidayWeekend() {
+        // Good Friday 2024, then the weekend
+        long thursdayAfterClose = newYork(new int[]{2024, 3, 28}, 17, 0);
+
+        assertEquals(newYork(new int[]{2024, 4, 1}, 9, 30), session.getNextOpen(thursdayAfterClose));
+    }
+
+    @Test
+    public void intradayQuote_staysFreshForTheTtl() {
+        long fetched = newYork(new int[]{2024, 3, 5}, 10, 0);
+
+        assertTrue(session.isFresh(fetched, 15 * MINUTE, fetched + 15 * MINUTE - 1));
+        assertFalse(session.isFresh(fetched, 15 * MINUTE, fetched + 15 * MINUTE));
+    }
+
+    private static long newYork(int[] day, int hour, int minute) {
+        Calendar cal = Calendar.getInstance(NEW_YORK);
+        cal.clear();
+        cal.set(day[0], day[1] - 1, day[2], hour, minute);
+        return cal.getTimeInMillis();
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar cal = Calendar.getInstance(UTC);
+        cal.clear();
+        cal.set(year, month - 1, day, hour, minute);
+        return cal.getTimeInMillis();
+    }
+
+    private static Calendar calendar(int[] day) {
+        Calendar cal = Calendar.getInstance(NEW_YORK);
+        cal.setTimeInMillis(newYork(day, 12, 0));
+        return cal;
+    }
+
+    private static String label(int[] day) {
+        return String.format("%04d-%02d-%02d", day[0], day[1], day[2]);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.finalproj.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MemoryCacheTest {
+
+    private static MemoryCache<String, byte[]> newCache(long maxBytes) {
+        return new MemoryCache<>(maxBytes, (key, value) -> value.length);
+    }
+
+    @Test
+    public void overBudget_evictsLeastRecentlyUsedFirst() {
+        MemoryCache<String, byte[]> cache = newCache(300);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.put("c", new byte[100]);
+
+        // Touching "a" makes "b" the oldest
+        assertNotNull(cache.get("a"));
+        cache.put("d", new byte[100]);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+
+        MemoryCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.evictions);
+        assertEquals(300, stats.bytes);
+        assertEquals(3, stats.entries);
+    }
+
+    @Test
+    public void replacingAnEntry_chargesOnlyTheNewSize() {
+        MemoryCache<String, byte[]> cache = newCache(1000);
+        cache.put("a", new byte[400]);
+        cache.put("a", new byte[100]);
+
+        assertEquals(100, cache.getStats().bytes);
+        assertEquals(1, cache.getStats().entries);
+    }
+
+    @Test
+    public void valueLargerThanBudget_isNotCached() {
+        MemoryCache<String, byte[]> cache = newCache(100);
+        cache.put("small", new byte[50]);
+        cache.put("huge", new byte[500]);
+
+        assertNull(cache.get("huge"));
+        assertNotNull(cache.get("small"));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        MemoryCache<String, byte[]> cache = newCache(1000);
+        cache.put("a", new byte[10]);
+
+        cache.get("a");
+        cache.get("a");
+        cache.get("missing");
+
+        MemoryCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.hits);
+        assertEquals(1, stats.misses);
+    }
+
+    @Test
+    public void trimAndEvictAll_releaseBytes() {
+        MemoryCache<String, byte[]> cache = newCache(1000);
+        for (int i = 0; i < 10; i++) {
+            cache.put("k" + i, new byte[100]);
+        }
+
+        cache.trimToSize(250);
+        assertEquals(200, cache.getStats().bytes);
+        assertNotNull(cache.get("k9"));
+        assertNull(cache.get("k0"));
+
+        cache.evictAll();
+        assertEquals(0, cache.getStats().bytes);
+        assertEquals(0, cache.getStats().entries);
+        assertEquals(10, cache.getStats().evictions);
+    }
+
+    @Test
+    public void removeIf_dropsMatchingEntriesWithoutCountingEvictions() {
+        MemoryCache<String, byte[]> cache = newCache(1000);
+        cache.put("AAPL_1D", new byte[100]);
+        cache.put("AAPL_1Y", new byte[100]);
+        cache.put("MSFT_1D", new byte[100]);
+
+        cache.removeIf((key, value) -> key.startsWith("AAPL_"));
+
+        assertNull(cache.get("AAPL_1D"));
+        assertNotNull(cache.get("MSFT_1D"));
+        assertEquals(100, cache.getStats().bytes);
+        assertEquals(0, cache.getStats().evictions);
+    }
+
+    @Test
+    public void peek_isNotCountedAsHitOrMiss() {
+        MemoryCache<String, byte[]> cache = newCache(1000);
+        cache.put("a", new byte[10]);
+
+        assertNotNull(cache.peek("a"));
+        assertNull(cache.peek("missing"));
+
+        assertEquals(0, cache.getStats().hits);
+        assertEquals(0, cache.getStats().misses);
+    }
+}
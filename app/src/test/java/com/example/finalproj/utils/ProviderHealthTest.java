@@ -0,0 +1,87 @@
+package com.example.finalproj.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProviderHealthTest {
+    @Test
+    public void noSamples_usesTheDefaultLatency() {
+        ProviderHealth health = new ProviderHealth();
+
+        assertEquals(800, health.getLatencyPercentile(95, 800));
+        assertEquals(1.0, health.getSuccessRate(), 0);
+    }
+
+    @Test
+    public void percentiles_useTheNearestRank() {
+        ProviderHealth health = new ProviderHealth();
+        // 10..200 ms, recorded out of order
+        for (int i = 0; i < 20; i++) {
+            health.recordSuccess(((i * 7) % 20 + 1) * 10);
+        }
+
+        assertEquals(100, health.getLatencyPercentile(50, 0));
+        assertEquals(190, health.getLatencyPercentile(95, 0));
+        assertEquals(200, health.getLatencyPercentile(100, 0));
+        assertEquals(10, health.getLatencyPercentile(0, 0));
+    }
+
+    @Test
+    public void oldSamples_fallOutOfTheWindow() {
+        ProviderHealth health = new ProviderHealth();
+        for (int i = 0; i < 64; i++) {
+            health.recordSuccess(5000);
+        }
+        for (int i = 0; i < 64; i++) {
+            health.recordSuccess(100);
+        }
+
+        assertEquals(100, health.getLatencyPercentile(99, 0));
+    }
+
+    @Test
+    public void abandonedRequests_countTowardsLatencyButNotSuccess() {
+        ProviderHealth health = new ProviderHealth();
+        health.recordSuccess(100);
+
+        health.recordAbandoned(3000);
+        health.recordAbandoned(3000);
+
+        assertEquals(3000, health.getLatencyPercentile(50, 0));
+        assertEquals(1.0, health.getSuccessRate(), 0);
+    }
+
+    @Test
+    public void failures_decaySuccessRateAndSuccessesRecoverIt() {
+        ProviderHealth health = new ProviderHealth();
+
+        health.recordFailure();
+        health.recordFailure();
+
+        assertEquals(0.64, health.getSuccessRate(), 1e-9);
+
+        health.recordSuccess(100);
+
+        assertEquals(0.712, health.getSuccessRate(), 1e-9);
+    }
+
+    @Test
+    public void score_prefersReliableFastProviders() {
+        ProviderHealth fast = new ProviderHealth();
+        ProviderHealth slow = new ProviderHealth();
+        ProviderHealth flaky = new ProviderHealth();
+        for (int i = 0; i < 10; i++) {
+            fast.recordSuccess(200);
+            slow.recordSuccess(2000);
+            flaky.recordSuccess(200);
+        }
+        for (int i = 0; i < 5; i++) {
+            flaky.recordFailure();
+        }
+
+        assertTrue(fast.getScore() > slow.getScore());
+        assertTrue(fast.getScore() > flaky.getScore());
+        assertEquals(1000.0 / 1200.0, fast.getScore(), 1e-3);
+    }
+}
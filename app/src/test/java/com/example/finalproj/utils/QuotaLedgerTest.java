@@ -0,0 +1,225 @@
+package com.example.finalproj.utils;
+
+import android.content.SharedPreferences;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class QuotaLedgerTest {
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+    private static final long MORNING = SlidingWindowLimiterTest.at(2024, Calendar.MARCH, 5, 9, 0);
+
+    @Test
+    public void spend_survivesARestartOnTheSameDay() {
+        MemoryPrefs prefs = new MemoryPrefs();
+        SlidingWindowLimiter limiter = limiter();
+        QuotaLedger ledger = new QuotaLedger(limiter);
+        ledger.restore(prefs, MORNING);
+        spend(limiter, ledger, prefs, "AAPL", MORNING);
+        spend(limiter, ledger, prefs, "AAPL", MORNING + 1);
+        spend(limiter, ledger, prefs, "MSFT", MORNING + 2);
+
+        SlidingWindowLimiter restartedLimiter = limiter();
+        QuotaLedger restarted = new QuotaLedger(restartedLimiter);
+        restarted.restore(prefs, MORNING + TimeUnit.HOURS.toMillis(3));
+
+        assertEquals(22, restarted.getRemainingToday(MORNING + TimeUnit.HOURS.toMillis(3)));
+        Map<String, Integer> spent = restarted.getSpentToday(MORNING + TimeUnit.HOURS.toMillis(3));
+        assertEquals(Integer.valueOf(2), spent.get("AAPL"));
+        assertEquals(Integer.valueOf(1), spent.get("MSFT"));
+    }
+
+    @Test
+    public void yesterdaysSpend_isNotRestored() {
+        MemoryPrefs prefs = new MemoryPrefs();
+        SlidingWindowLimiter limiter = limiter();
+        QuotaLedger ledger = new QuotaLedger(limiter);
+        ledger.restore(prefs, MORNING);
+        spend(limiter, ledger, prefs, "AAPL", MORNING);
+
+        long nextDay = MORNING + TimeUnit.DAYS.toMillis(1);
+        QuotaLedger restarted = new QuotaLedger(limiter());
+        restarted.restore(prefs, nextDay);
+
+        assertEquals(25, restarted.getRemainingToday(nextDay));
+        assertTrue(restarted.getSpentToday(nextDay).isEmpty());
+    }
+
+    @Test
+    public void restore_isOnlyAppliedOnce() {
+        MemoryPrefs prefs = new MemoryPrefs();
+        prefs.edit().putLong("av_quota_day", SlidingWindowLimiterTest.at(2024, Calendar.MARCH, 5, 0, 0))
+                .putInt("av_quota_used", 5).apply();
+        SlidingWindowLimiter limiter = limiter();
+        QuotaLedger ledger = new QuotaLedger(limiter);
+
+        ledger.restore(prefs, MORNING);
+        prefs.edit().putInt("av_quota_used", 20).apply();
+        ledger.restore(prefs, MORNING);
+
+        assertEquals(20, ledger.getRemainingToday(MORNING));
+    }
+
+    @Test
+    public void spentBreakdown_resetsAtMidnight() {
+        MemoryPrefs prefs = new MemoryPrefs();
+        SlidingWindowLimiter limiter = limiter();
+        QuotaLedger ledger = new QuotaLedger(limiter);
+        ledger.restore(prefs, MORNING);
+        spend(limiter, ledger, prefs, "AAPL", MORNING);
+
+        long midnight = SlidingWindowLimiterTest.at(2024, Calendar.MARCH, 6, 0, 0);
+
+        assertTrue(ledger.getSpentToday(midnight).isEmpty());
+        assertEquals(25, ledger.getRemainingToday(midnight));
+    }
+
+    private static SlidingWindowLimiter limiter() {
+        return new SlidingWindowLimiter(5, TimeUnit.MINUTES.toMillis(1), 25, NEW_YORK);
+    }
+
+    private static void spend(SlidingWindowLimiter limiter, QuotaLedger ledger, SharedPreferences prefs,
+                              String symbol, long now) {
+        assertTrue(limiter.tryAcquire(now));
+        ledger.recordSpend(prefs, symbol, now);
+    }
+
+    // Just enough SharedPreferences for the ledger's keys
+    private static class MemoryPrefs implements SharedPreferences {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            Object value = values.get(key);
+            return value != null ? (String) value : defValue;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            Object value = values.get(key);
+            return value != null ? (Set<String>) value : defValues;
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            Object value = values.get(key);
+            return value != null ? (Integer) value : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            Object value = values.get(key);
+            return value != null ? (Long) value : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            Object value = values.get(key);
+            return value != null ? (Float) value : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            Object value = values.get(key);
+            return value != null ? (Boolean) value : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            Map<String, Object> changes = new HashMap<>();
+            return new Editor() {
+                @Override
+                public Editor putString(String key, String value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putStringSet(String key, Set<String> value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putInt(String key, int value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putLong(String key, long value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putFloat(String key, float value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putBoolean(String key, boolean value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor remove(String key) {
+                    changes.put(key, null);
+                    return this;
+                }
+
+                @Override
+                public Editor clear() {
+                    values.clear();
+                    return this;
+                }
+
+                @Override
+                public boolean commit() {
+                    apply();
+                    return true;
+                }
+
+                @Override
+                public void apply() {
+                    for (Map.Entry<String, Object> change : changes.entrySet()) {
+                        if (change.getValue() == null) {
+                            values.remove(change.getKey());
+                        } else {
+                            values.put(change.getKey(), change.getValue());
+                        }
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+    }
+}
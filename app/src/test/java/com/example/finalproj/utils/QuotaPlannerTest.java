@@ -0,0 +1,112 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.Quote;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class QuotaPlannerTest {
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void positions_areValuedAtTheCachedPriceNotTheCostBasis() {
+        QuotaPlanner planner = new QuotaPlanner(0, 0);
+        planner.setHoldings(map("NVDA", 10, "IBM", 10), map("NVDA", 50.0, "IBM", 150.0));
+        Map<String, Quote> cached = quotes(quote("NVDA", 900, NOW - 2 * HOUR), quote("IBM", 160, NOW - 2 * HOUR));
+
+        List<QuotaPlanner.Decision> decisions = planner.plan(Arrays.asList("IBM", "NVDA"), cached, false, 1, NOW);
+
+        assertEquals(9000, planner.getPositionValue("NVDA", cached.get("NVDA")), 0);
+        assertEquals("NVDA", decisions.get(0).symbol);
+        assertTrue(decisions.get(0).admitted);
+        assertFalse(decisions.get(1).admitted);
+    }
+
+    @Test
+    public void symbolWithoutAQuote_isValuedAtItsPurchasePrice() {
+        QuotaPlanner planner = new QuotaPlanner(5, 10);
+        planner.setHoldings(map("TSLA", 4, "AAPL", 0), map("TSLA", 200.0, "AAPL", 100.0));
+
+        assertEquals(800, planner.getPositionValue("TSLA", null), 0);
+        assertEquals(0, planner.getPositionValue("MSFT", null), 0);
+    }
+
+    @Test
+    public void budgetSmallerThanTheBatch_admitsTheHighestScoresInOrder() {
+        QuotaPlanner planner = new QuotaPlanner(0, 0);
+        Map<String, Quote> cached = quotes(
+                quote("AAPL", 100, NOW - HOUR),
+                quote("MSFT", 100, NOW - 5 * HOUR),
+                quote("TSLA", 100, NOW - 3 * HOUR));
+
+        List<QuotaPlanner.Decision> decisions = planner.plan(
+                Arrays.asList("AAPL", "MSFT", "TSLA", "NVDA"), cached, true, 2, NOW);
+
+        assertEquals("NVDA", decisions.get(0).symbol);
+        assertEquals("MSFT", decisions.get(1).symbol);
+        assertTrue(decisions.get(1).admitted);
+        assertFalse(decisions.get(2).admitted);
+        assertEquals("daily budget spent", decisions.get(3).reason);
+    }
+
+    @Test
+    public void lowBudget_onlyAdmitsScoresAboveTheFloor() {
+        QuotaPlanner planner = new QuotaPlanner(10, 12);
+        Map<String, Quote> cached = quotes(quote("AAPL", 100, NOW - HOUR), quote("MSFT", 100, NOW - 20 * HOUR));
+
+        List<QuotaPlanner.Decision> decisions = planner.plan(Arrays.asList("AAPL", "MSFT"), cached, false, 8, NOW);
+
+        assertEquals("MSFT", decisions.get(0).symbol);
+        assertTrue(decisions.get(0).admitted);
+        assertFalse(decisions.get(1).admitted);
+    }
+
+    @Test
+    public void score_capsStalenessAtADayAndWeighsVisibility() {
+        QuotaPlanner planner = new QuotaPlanner(5, 10);
+
+        assertEquals(24, planner.score(TimeUnit.DAYS.toMillis(3), 0, false), 1e-9);
+        assertEquals(2 * 2 * 3, planner.score(2 * HOUR, 99, true), 1e-9);
+    }
+
+    @Test
+    public void recentDecisions_keepTheNewestFifty() {
+        QuotaPlanner planner = new QuotaPlanner(0, 0);
+
+        for (int i = 0; i < 30; i++) {
+            planner.plan(Arrays.asList("A" + i, "B" + i), Collections.emptyMap(), false, 100, NOW);
+        }
+
+        List<QuotaPlanner.Decision> recent = planner.getRecentDecisions();
+        assertEquals(50, recent.size());
+        assertEquals("A29", recent.get(recent.size() - 2).symbol);
+    }
+
+    private static Quote quote(String symbol, double price, long fetchedAt) {
+        return new Quote(symbol, price, price, "2023-11-14", fetchedAt);
+    }
+
+    private static Map<String, Quote> quotes(Quote... quotes) {
+        Map<String, Quote> map = new HashMap<>();
+        for (Quote quote : quotes) {
+            map.put(quote.getSymbol(), quote);
+        }
+        return map;
+    }
+
+    private static <V> Map<String, V> map(String k1, V v1, String k2, V v2) {
+        Map<String, V> map = new HashMap<>();
+        map.put(k1, v1);
+        map.put(k2, v2);
+        return map;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.finalproj.utils;
+
+import com.example.finalproj.model.Quote;
+import com.example.finalproj.model.Tick;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.Assert.*;
+
+public class QuoteChangeFilterTest {
+
+    @Test
+    public void firstValue_reportsAllFields() {
+        QuoteChangeFilter filter = QuoteChangeFilter.forDisplay();
+
+        QuoteChangeFilter.Change change = filter.filter("AAPL", quote("AAPL", 190.00, 188.00, "2024-05-01"));
+
+        assertNotNull(change);
+        assertEquals(EnumSet.allOf(QuoteChangeFilter.Field.class), change.fields);
+    }
+
+    @Test
+    public void movesWithinAbsoluteEpsilon_areSuppressedUntilTheyAddUp() {
+        QuoteChangeFilter filter = QuoteChangeFilter.forDisplay();
+        filter.filter("AAPL", quote("AAPL", 190.000, 188.00, "2024-05-01"));
+
+        assertNull(filter.filter("AAPL", quote("AAPL", 190.000, 188.00, "2024-05-01")));
+        assertNull(filter.filter(new Tick("AAPL", 190.003, 10, 0)));
+        assertNull(filter.filter(new Tick("AAPL", 190.004, 10, 0)));
+
+        // Compared with the last delivered price (190.000), not the last seen one
+        QuoteChangeFilter.Change change = filter.filter(new Tick("AAPL", 190.006, 10, 0));
+        assertNotNull(change);
+        assertEquals(EnumSet.of(QuoteChangeFilter.Field.PRICE), change.fields);
+        assertEquals(190.006, change.price, 0);
+        assertEquals(188.00, change.previousClose, 0);
+
+        assertEquals(2, filter.getAcceptedCount());
+        assertEquals(3, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void percentEpsilon_scalesWithPrice() {
+        QuoteChangeFilter filter = new QuoteChangeFilter(0, 0.1);
+        filter.filter("CHEAP", quote("CHEAP", 5.00, 5.00, "2024-05-01"));
+        filter.filter("DEAR", quote("DEAR", 500.00, 500.00, "2024-05-01"));
+
+        // 0.10% of 5.00 is half a cent; of 500.00 it is 50 cents
+        assertNotNull(filter.filter(new Tick("CHEAP", 5.01, 1, 0)));
+        assertNull(filter.filter(new Tick("DEAR", 500.40, 1, 0)));
+        assertNotNull(filter.filter(new Tick("DEAR", 500.60, 1, 0)));
+    }
+
+    @Test
+    public void payloadNamesOnlyTheFieldsThatMoved() {
+        QuoteChangeFilter filter = QuoteChangeFilter.forDisplay();
+        filter.filter("MSFT", quote("MSFT", 410.00, 405.00, "2024-05-01"));
+
+        QuoteChangeFilter.Change change = filter.filter("MSFT", quote("MSFT", 410.00, 410.00, "2024-05-02"));
+
+        assertEquals(EnumSet.of(QuoteChangeFilter.Field.PREVIOUS_CLOSE, QuoteChangeFilter.Field.TRADING_DAY),
+                change.fields);
+        assertFalse(change.has(QuoteChangeFilter.Field.PRICE));
+    }
+
+    @Test
+    public void forget_reportsTheNextValueAgain() {
+        QuoteChangeFilter filter = QuoteChangeFilter.forDisplay();
+        Quote quote = quote("TSLA", 170.00, 172.00, "2024-05-01");
+        filter.filter("TSLA", quote);
+        assertNull(filter.filter("TSLA", quote));
+
+        filter.forget("TSLA");
+
+        assertNotNull(filter.filter("TSLA", quote));
+    }
+
+    private static Quote quote(String symbol, double price, double previousClose, String tradingDay) {
+        return new Quote(symbol, price, previousClose, tradingDay, 0);
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.finalproj.utils;
+
+import android.content.Context;
+
+import com.example.finalproj.model.Quote;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class QuoteRouterTest {
+    private static final List<String> SYMBOLS = Arrays.asList("AAPL", "MSFT", "NVDA");
+    private static final long HEDGE_DELAY = 20;
+
+    private RequestDispatcher<Object> scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new RequestDispatcher<>("TestRouter",
+                new SlidingWindowLimiter(1, TimeUnit.MINUTES.toMillis(1), 1, TimeZone.getDefault()),
+                new RequestDispatcher.Sink<Object>() {
+                    @Override
+                    public boolean isCancelled(Object task) {
+                        return false;
+                    }
+
+                    @Override
+                    public void onCancelled(Object task) {
+                    }
+
+                    @Override
+                    public void onQuotaExhausted(Object task) {
+                    }
+
+                    @Override
+                    public void send(Object task) {
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void synchronousAnswer_isDeliveredWithoutHedgeOrFailover() throws Exception {
+        FakeProvider primary = FakeProvider.answering("primary", SYMBOLS);
+        FakeProvider secondary = FakeProvider.answering("secondary", SYMBOLS);
+        QuoteRouter router = router(primary, secondary);
+
+        Result result = fetch(router, SYMBOLS);
+
+        assertEquals(SYMBOLS.size(), result.await().size());
+        Thread.sleep(HEDGE_DELAY * 3);
+        assertEquals(1, primary.requests.size());
+        assertTrue(secondary.requests.isEmpty());
+        assertEquals(0, router.getHedgedRequestCount());
+    }
+
+    @Test
+    public void partialAnswer_failsOverOnlyTheMissingSymbols() throws Exception {
+        FakeProvider primary = FakeProvider.answering("primary", Collections.singletonList("AAPL"));
+        FakeProvider secondary = FakeProvider.answering("secondary", SYMBOLS);
+        QuoteRouter router = router(primary, secondary);
+
+        Map<String, Quote> quotes = fetch(router, SYMBOLS).await();
+
+        assertEquals(SYMBOLS.size(), quotes.size());
+        assertEquals("primary", quotes.get("AAPL").getLatestTradingDay());
+        assertEquals("secondary", quotes.get("NVDA").getLatestTradingDay());
+        assertEquals(Arrays.asList("MSFT", "NVDA"), secondary.requests.get(0));
+    }
+
+    @Test
+    public void everyProviderFailing_reportsTheLastError() throws Exception {
+        FakeProvider primary = FakeProvider.failing("primary");
+        FakeProvider secondary = FakeProvider.failing("secondary");
+        QuoteRouter router = router(primary, secondary);
+
+        Result result = fetch(router, SYMBOLS);
+
+        assertNull(result.await());
+        assertEquals("secondary failed", result.error.get());
+        assertTrue(primary.health(router).getSuccessRate() < 1.0);
+    }
+
+    @Test
+    public void slowPrimary_isHedgedAndTheLoserCancelled() throws Exception {
+        FakeProvider primary = FakeProvider.holding("primary");
+        FakeProvider secondary = FakeProvider.answering("secondary", SYMBOLS);
+        QuoteRouter router = router(primary, secondary);
+
+        Map<String, Quote> quotes = fetch(router, SYMBOLS).await();
+
+        assertEquals(SYMBOLS.size(), quotes.size());
+        assertEquals(1, router.getHedgedRequestCount());
+        assertEquals(SYMBOLS, secondary.requests.get(0));
+        assertTrue(primary.handles.get(0).isCancelled());
+        // The abandoned attempt is counted as at least as slow as the hedge delay
+        assertTrue(primary.health(router).getLatencyPercentile(50, -1) >= HEDGE_DELAY);
+    }
+
+    @Test
+    public void hedgeRefusedByTheProvider_waitsForThePrimary() throws Exception {
+        FakeProvider primary = FakeProvider.holding("primary");
+        FakeProvider secondary = FakeProvider.answering("secondary", SYMBOLS);
+        secondary.hedgeAllowed = false;
+        QuoteRouter router = router(primary, secondary);
+
+        Result result = fetch(router, SYMBOLS);
+        Thread.sleep(HEDGE_DELAY * 3);
+
+        assertTrue(secondary.requests.isEmpty());
+        primary.answerPending(SYMBOLS);
+        assertEquals(SYMBOLS.size(), result.await().size());
+        assertEquals(0, router.getHedgedRequestCount());
+    }
+
+    @Test
+    public void failedProvider_isRankedBelowAHealthyOne() throws Exception {
+        FakeProvider first = FakeProvider.failing("first");
+        FakeProvider second = FakeProvider.answering("second", SYMBOLS);
+        QuoteRouter router = router(first, second);
+        fetch(router, SYMBOLS).await();
+
+        fetch(router, SYMBOLS).await();
+
+        assertEquals(1, first.requests.size());
+        assertEquals(2, second.requests.size());
+    }
+
+    @Test
+    public void answerFromAnotherThreadBeforeFetchReturns_doesNotDeadlock() throws Exception {
+        // The provider hands the answer to another thread and waits for it, as a provider
+        // that completes through a lock-protected cache would
+        FakeProvider primary = new FakeProvider("primary") {
+            @Override
+            void answer(List<String> symbols, ApiManager.BatchCallback callback) {
+                Thread worker = new Thread(() -> callback.onSuccess(quotes(getName(), SYMBOLS)));
+                worker.start();
+                try {
+                    worker.join(TimeUnit.SECONDS.toMillis(5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                assertFalse("Callback blocked on the router", worker.isAlive());
+            }
+        };
+        QuoteRouter router = router(primary, FakeProvider.answering("secondary", SYMBOLS));
+
+        assertEquals(SYMBOLS.size(), fetch(router, SYMBOLS).await().size());
+    }
+
+    private QuoteRouter router(FakeProvider... providers) {
+        return new QuoteRouter(scheduler, 95, HEDGE_DELAY, HEDGE_DELAY, Arrays.asList(providers));
+    }
+
+    private static Result fetch(QuoteRouter router, List<String> symbols) {
+        Result result = new Result();
+        router.fetch(null, symbols, ApiManager.Priority.VISIBLE, result);
+        return result;
+    }
+
+    private static Map<String, Quote> quotes(String provider, List<String> symbols) {
+        Map<String, Quote> quotes = new HashMap<>();
+        for (String symbol : symbols) {
+            // The trading day records which provider answered
+            quotes.put(symbol, new Quote(symbol, 100, 99, provider, 0));
+        }
+        return quotes;
+    }
+
+    private static class Result implements ApiManager.BatchCallback {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Map<String, Quote>> quotes = new AtomicReference<>();
+        final AtomicReference<String> error = new AtomicReference<>();
+
+        @Override
+        public void onSuccess(Map<String, Quote> result) {
+            quotes.set(result);
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(String errorMessage) {
+            error.set(errorMessage);
+            done.countDown();
+        }
+
+        Map<String, Quote> await() throws InterruptedException {
+            assertTrue("No answer", done.await(5, TimeUnit.SECONDS));
+            return quotes.get();
+        }
+    }
+
+    private static class FakeProvider implements QuoteProvider {
+        private final String name;
+        final List<List<String>> requests = new CopyOnWriteArrayList<>();
+        final List<RequestHandle> handles = new CopyOnWriteArrayList<>();
+        volatile boolean hedgeAllowed = true;
+        private volatile ApiManager.BatchCallback pending;
+
+        FakeProvider(String name) {
+            this.name = name;
+        }
+
+        static FakeProvider answering(String name, List<String> resolved) {
+            return new FakeProvider(name) {
+                @Override
+                void answer(List<String> symbols, ApiManager.BatchCallback callback) {
+                    List<String> known = new ArrayList<>(symbols);
+                    known.retainAll(resolved);
+                    callback.onSuccess(quotes(name, known));
+                }
+            };
+        }
+
+        static FakeProvider failing(String name) {
+            return new FakeProvider(name) {
+                @Override
+                void answer(List<String> symbols, ApiManager.BatchCallback callback) {
+                    callback.onFailure(name + " failed");
+                }
+            };
+        }
+
+        static FakeProvider holding(String name) {
+            return new FakeProvider(name);
+        }
+
+        // Holds the request until answerPending by default
+        void answer(List<String> symbols, ApiManager.BatchCallback callback) {
+            pending = callback;
+        }
+
+        void answerPending(List<String> symbols) {
+            pending.onSuccess(quotes(name, symbols));
+        }
+
+        ProviderHealth health(QuoteRouter router) {
+            return router.getProviderHealth().get(name);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean canAccept(int symbolCount) {
+            return true;
+        }
+
+        @Override
+        public boolean canHedge(int symbolCount) {
+            return hedgeAllowed;
+        }
+
+        @Override
+        public RequestHandle fetch(Context context, List<String> symbols, ApiManager.Priority priority,
+                                   ApiManager.BatchCallback callback) {
+            requests.add(symbols);
+            RequestHandle handle = new RequestHandle();
+            handles.add(handle);
+            answer(symbols, callback);
+            return handle;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.finalproj.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RequestDispatcherTest {
+    private static final String THREAD_NAME = "TestDispatcher";
+
+    private RequestDispatcher<Integer> dispatcher;
+
+    @After
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void manyProducers_eachTaskSentExactlyOnceOnSchedulerThread() throws Exception {
+        int producers = 16;
+        int tasksPerProducer = 5000;
+        int totalTasks = producers * tasksPerProducer;
+
+        Map<Integer, AtomicInteger> sendCounts = new ConcurrentHashMap<>();
+        Set<String> sendThreads = ConcurrentHashMap.newKeySet();
+        CountDownLatch allSent = new CountDownLatch(totalTasks);
+
+        dispatcher = new RequestDispatcher<>(THREAD_NAME, unlimitedLimiter(), new RecordingSink() {
+            @Override
+            public void send(Integer task) {
+                sendCounts.computeIfAbsent(task, key -> new AtomicInteger()).incrementAndGet();
+                sendThreads.add(Thread.currentThread().getName());
+                allSent.countDown();
+            }
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < tasksPerProducer; i++) {
+                    dispatcher.submit(producer * tasksPerProducer + i, i % 2 == 0);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("Not every task was sent", allSent.await(30, TimeUnit.SECONDS));
+        assertEquals(totalTasks, sendCounts.size());
+        for (Map.Entry<Integer, AtomicInteger> entry : sendCounts.entrySet()) {
+            assertEquals("Task " + entry.getKey() + " sent more than once", 1, entry.getValue().get());
+        }
+        assertEquals(Collections.singleton(THREAD_NAME), sendThreads);
+        assertEquals(0, dispatcher.size());
+    }
+
+    @Test
+    public void visibleLane_isServedBeforeBackground() throws Exception {
+        CountDownLatch firstSendStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstSend = new CountDownLatch(1);
+        CountDownLatch allSent = new CountDownLatch(11);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        dispatcher = new RequestDispatcher<>(THREAD_NAME, unlimitedLimiter(), new RecordingSink() {
+            @Override
+            public void send(Integer task) {
+                if (task == 0) {
+                    firstSendStarted.countDown();
+                    try {
+                        releaseFirstSend.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else {
+                    order.add(task);
+                }
+                allSent.countDown();
+            }
+        });
+
+        // Hold the scheduler inside the first send while both lanes fill up
+        dispatcher.submit(0, false);
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            dispatcher.submit(100 + i, false);
+        }
+        for (int i = 1; i <= 5; i++) {
+            dispatcher.submit(i, true);
+        }
+        releaseFirstSend.countDown();
+
+        assertTrue(allSent.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3, 4, 5, 101, 102, 103, 104, 105), order);
+    }
+
+    @Test
+    public void cancelledTasks_areDroppedWithoutSpendingTokens() throws Exception {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(100, TimeUnit.MINUTES.toMillis(1), 1000,
+                TimeZone.getTimeZone("UTC"));
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(10);
+
+        dispatcher = new RequestDispatcher<>(THREAD_NAME, limiter, new RecordingSink() {
+            @Override
+            public boolean isCancelled(Integer task) {
+                return task % 5 != 0;
+            }
+
+            @Override
+            public void onCancelled(Integer task) {
+                cancelled.incrementAndGet();
+                done.countDown();
+            }
+
+            @Override
+            public void send(Integer task) {
+                sent.incrementAndGet();
+                done.countDown();
+            }
+        });
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.submit(i, true);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, sent.get());
+        assertEquals(8, cancelled.get());
+        assertEquals(998, limiter.getRemainingToday(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void exhaustedDailyQuota_skipsSend() throws Exception {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(10, TimeUnit.MINUTES.toMillis(1), 3,
+                TimeZone.getTimeZone("UTC"));
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger exhausted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(5);
+
+        dispatcher = new RequestDispatcher<>(THREAD_NAME, limiter, new RecordingSink() {
+            @Override
+            public void onQuotaExhausted(Integer task) {
+                exhausted.incrementAndGet();
+                done.countDown();
+            }
+
+            @Override
+            public void send(Integer task) {
+                sent.incrementAndGet();
+                done.countDown();
+            }
+        });
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.submit(i, false);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, sent.get());
+        assertEquals(2, exhausted.get());
+    }
+
+    @Test
+    public void throwingSend_doesNotStallTheTasksBehindIt() throws Exception {
+        List<Integer> sent = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+
+        dispatcher = new RequestDispatcher<>(THREAD_NAME, unlimitedLimiter(), new RecordingSink() {
+            @Override
+            public void send(Integer task) {
+                done.countDown();
+                if (task == 1) {
+                    throw new IllegalStateException("boom");
+                }
+                sent.add(task);
+            }
+        });
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.submit(i, false);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // The scheduler thread survived and keeps sending
+        CountDownLatch later = new CountDownLatch(1);
+        dispatcher.schedule(later::countDown, 0);
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 2), sent);
+    }
+
+    private static SlidingWindowLimiter unlimitedLimiter() {
+        return new SlidingWindowLimiter(Integer.MAX_VALUE, TimeUnit.MINUTES.toMillis(1), Integer.MAX_VALUE,
+                TimeZone.getTimeZone("UTC"));
+    }
+
+    private abstract static class RecordingSink implements RequestDispatcher.Sink<Integer> {
+        @Override
+        public boolean isCancelled(Integer task) {
+            return false;
+        }
+
+        @Override
+        public void onCancelled(Integer task) {
+        }
+
+        @Override
+        public void onQuotaExhausted(Integer task) {
+        }
+    }
+}
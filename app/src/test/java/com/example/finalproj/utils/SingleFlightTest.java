@@ -0,0 +1,90 @@
+package com.example.finalproj.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+    @Test
+    public void concurrentCallers_shareOneFetch() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+
+        assertTrue(flights.join("AAPL", "first"));
+        assertFalse(flights.join("AAPL", "second"));
+        assertFalse(flights.join("AAPL", "third"));
+        assertTrue(flights.join("MSFT", "other"));
+
+        assertEquals(Arrays.asList("first", "second", "third"), flights.complete("AAPL"));
+        assertEquals(2, flights.getSavedCalls());
+        assertTrue(flights.isInFlight("MSFT"));
+    }
+
+    @Test
+    public void lateJoiner_afterCompletion_leadsANewFetch() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        flights.join("AAPL", "first");
+        flights.complete("AAPL");
+
+        assertFalse(flights.isInFlight("AAPL"));
+        assertTrue(flights.join("AAPL", "late"));
+
+        assertEquals(Collections.singletonList("late"), flights.complete("AAPL"));
+        assertEquals(0, flights.getSavedCalls());
+    }
+
+    @Test
+    public void completeWithoutAFlight_returnsNoWaiters() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+
+        assertTrue(flights.complete("AAPL").isEmpty());
+    }
+
+    @Test
+    public void abandon_keepsTheFlightWhileAnyWaiterIsLive() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        Set<String> cancelled = new HashSet<>();
+        flights.join("AAPL", "first");
+        flights.join("AAPL", "second");
+        cancelled.add("first");
+
+        assertFalse(flights.abandon("AAPL", cancelled::contains));
+        assertTrue(flights.isInFlight("AAPL"));
+
+        cancelled.add("second");
+
+        assertTrue(flights.abandon("AAPL", cancelled::contains));
+        assertFalse(flights.isInFlight("AAPL"));
+        // A caller arriving after the abandon starts a fresh fetch instead of joining a dead one
+        assertTrue(flights.join("AAPL", "third"));
+    }
+
+    @Test
+    public void completeAfterAbandon_deliversNothing() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        flights.join("AAPL", "first");
+        flights.abandon("AAPL", waiter -> true);
+
+        List<String> waiters = flights.complete("AAPL");
+
+        assertTrue(waiters.isEmpty());
+        assertTrue(flights.abandon("MSFT", waiter -> false));
+    }
+
+    @Test
+    public void abandonedFetchFinishingFirst_servesTheNextFlightsWaiters() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        flights.join("AAPL", "cancelled");
+        flights.abandon("AAPL", waiter -> true);
+        flights.join("AAPL", "next");
+
+        // The abandoned fetch returns first; its quote is as good as the one still coming
+        assertEquals(Collections.singletonList("next"), flights.complete("AAPL"));
+        assertTrue(flights.complete("AAPL").isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.finalproj.utils;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SlidingWindowLimiterTest {
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    @Test
+    public void fullWindow_isAllowedAsABurstThenBlocked() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(5, MINUTE, 100, NEW_YORK);
+        long now = at(2024, Calendar.MARCH, 5, 10, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(now));
+        }
+
+        assertFalse(limiter.tryAcquire(now));
+        assertEquals(MINUTE, limiter.getDelayUntilAvailable(now));
+    }
+
+    @Test
+    public void slots_comeBackOneWindowAfterEachCall() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(2, MINUTE, 100, NEW_YORK);
+        long start = at(2024, Calendar.MARCH, 5, 10, 0);
+        limiter.tryAcquire(start);
+        limiter.tryAcquire(start + 20_000);
+
+        assertEquals(20_000, limiter.getDelayUntilAvailable(start + 40_000));
+        assertFalse(limiter.tryAcquire(start + MINUTE - 1));
+        assertTrue(limiter.tryAcquire(start + MINUTE));
+        // The second call is still inside the window ending now
+        assertFalse(limiter.tryAcquire(start + MINUTE + 1));
+        assertEquals(20_000 - 1, limiter.getDelayUntilAvailable(start + MINUTE + 1));
+    }
+
+    @Test
+    public void dailyQuota_blocksUntilMidnightInTheResetZone() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(5, MINUTE, 3, NEW_YORK);
+        long evening = at(2024, Calendar.MARCH, 5, 23, 0);
+        long midnight = at(2024, Calendar.MARCH, 6, 0, 0);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(evening + i * MINUTE);
+        }
+
+        long later = evening + 10 * MINUTE;
+        assertTrue(limiter.isDailyQuotaExhausted(later));
+        assertEquals(0, limiter.getRemainingToday(later));
+        assertFalse(limiter.tryAcquire(later));
+        assertEquals(midnight - later, limiter.getDelayUntilAvailable(later));
+        assertEquals(midnight, limiter.getNextResetTime(later));
+
+        assertTrue(limiter.tryAcquire(midnight));
+        assertEquals(2, limiter.getRemainingToday(midnight));
+        assertEquals(midnight, limiter.getCurrentDayStart(midnight));
+    }
+
+    @Test
+    public void dailyReset_followsDaylightSavingChanges() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(5, MINUTE, 1, NEW_YORK);
+        // Clocks go forward at 2am on March 10, so that day is 23 hours long
+        long dayStart = at(2024, Calendar.MARCH, 10, 0, 0);
+        limiter.tryAcquire(dayStart + MINUTE);
+
+        assertEquals(dayStart + TimeUnit.HOURS.toMillis(23), limiter.getNextResetTime(dayStart + MINUTE));
+    }
+
+    @Test
+    public void restore_keepsTheHigherCountFromTheSameDay() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(5, MINUTE, 25, NEW_YORK);
+        long now = at(2024, Calendar.MARCH, 5, 15, 0);
+        long dayStart = at(2024, Calendar.MARCH, 5, 0, 0);
+        limiter.tryAcquire(now);
+
+        limiter.restore(dayStart, 20, now);
+
+        assertEquals(20, limiter.getUsedToday());
+        assertEquals(5, limiter.getRemainingToday(now));
+
+        limiter.restore(dayStart, 3, now);
+
+        assertEquals(20, limiter.getUsedToday());
+    }
+
+    @Test
+    public void restore_ignoresACountFromAnEarlierDay() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(5, MINUTE, 25, NEW_YORK);
+        long now = at(2024, Calendar.MARCH, 5, 15, 0);
+
+        limiter.restore(at(2024, Calendar.MARCH, 4, 0, 0), 25, now);
+
+        assertEquals(25, limiter.getRemainingToday(now));
+        assertTrue(limiter.tryAcquire(now));
+    }
+
+    static long at(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(NEW_YORK);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}